@@ -0,0 +1,43 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Catalog-wide version, bumped after every committed product change and used as the ETag of catalog listings.
+ * The tag also rolls over once per product cache TTL, so an instance that doesn't see the changes committed
+ * by another instance serves stale listings for no longer than it serves stale cache entries.
+ */
+package com.reuveny.Electronics.cache;
+
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class CatalogVersion {
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private final long ttlMillis;
+
+    public CatalogVersion(@Value("${product.cache.ttl:10m}") Duration ttl) {
+        this.ttlMillis = ttl.toMillis();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * @return The strong ETag of the current catalog state.
+     */
+    public String getETag() {
+        return "\"catalog-" + startedAt + "-" + version.get() + "-" +
+               System.currentTimeMillis() / ttlMillis + "\"";
+    }
+}
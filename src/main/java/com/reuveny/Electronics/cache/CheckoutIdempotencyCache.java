@@ -0,0 +1,67 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Bounded, TTL-evicting cache of the orders placed by checkouts with an idempotency key, so that
+ * retries of a completed checkout are answered from memory. Orders are held as their serialized JSON,
+ * an immutable snapshot taken when the checkout completes, rather than as entities shared across
+ * requests. The checkout_idempotency_keys table is the durable record behind it, for retries this
+ * cache doesn't hold.
+ */
+package com.reuveny.Electronics.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reuveny.Electronics.model.Order;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+public class CheckoutIdempotencyCache {
+    private final Cache<Key, byte[]> ordersByKey;
+
+    private final ObjectMapper objectMapper;
+
+    public CheckoutIdempotencyCache(
+            @Value("${checkout.idempotency.cache-max-size:10000}") long maxSize,
+            @Value("${checkout.idempotency.ttl:24h}") Duration ttl,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper
+    ) {
+        this.ordersByKey = Caffeine.newBuilder()
+                                   .maximumSize(maxSize)
+                                   .expireAfterWrite(ttl)
+                                   .recordStats()
+                                   .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, ordersByKey, "checkoutOrdersByIdempotencyKey");
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return The JSON of the order placed by the checkout of the user with the key, or null if it isn't cached.
+     */
+    public byte[] get(Long userId, String idempotencyKey) {
+        return ordersByKey.getIfPresent(new Key(userId, idempotencyKey));
+    }
+
+    /**
+     * Caches the JSON of the order of a committed checkout, serialized right away with its items.
+     * An order that can't be serialized isn't cached; its retries are answered from the database.
+     */
+    public void put(Long userId, String idempotencyKey, Order order) {
+        try {
+            ordersByKey.put(new Key(userId, idempotencyKey), objectMapper.writeValueAsBytes(order));
+        } catch (JsonProcessingException ex) {
+            ordersByKey.invalidate(new Key(userId, idempotencyKey));
+        }
+    }
+
+    private record Key(Long userId, String idempotencyKey) {
+    }
+}
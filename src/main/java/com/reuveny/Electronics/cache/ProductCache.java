@@ -0,0 +1,86 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Bounded, TTL-evicting read-through cache in front of the product read queries.
+ * Entries are invalidated after commit from the product changes published by the services,
+ * and hit, miss and eviction counters are registered as cache metrics.
+ */
+package com.reuveny.Electronics.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+@Component
+public class ProductCache {
+    private final Cache<Long, Product> productsById;
+
+    private final Cache<Category, List<ProductSummaryDto>> productsByCategory;
+
+    public ProductCache(
+            @Value("${product.cache.max-size:10000}") long maxSize,
+            @Value("${product.cache.ttl:10m}") Duration ttl,
+            MeterRegistry meterRegistry
+    ) {
+        this.productsById = Caffeine.newBuilder()
+                                    .maximumSize(maxSize)
+                                    .expireAfterWrite(ttl)
+                                    .recordStats()
+                                    .build();
+        // List entries are weighed by their row count, so max-size bounds the cached products.
+        this.productsByCategory = Caffeine.newBuilder()
+                                          .maximumWeight(maxSize)
+                                          .weigher((Category key, List<ProductSummaryDto> value) ->
+                                                           value.size() + 1)
+                                          .expireAfterWrite(ttl)
+                                          .recordStats()
+                                          .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, productsById, "productsById");
+        CaffeineCacheMetrics.monitor(meterRegistry, productsByCategory, "productsByCategory");
+    }
+
+    public Product getById(Long productId, Function<Long, Product> loader) {
+        return productsById.get(productId, loader);
+    }
+
+    public List<ProductSummaryDto> getByCategory(
+            Category category,
+            Function<Category, List<ProductSummaryDto>> loader
+    ) {
+        return productsByCategory.get(category, loader);
+    }
+
+    /**
+     * Invalidates exactly the entries a committed change can affect: the product itself
+     * and the categories it left or joined.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        for (ProductChange change : event.getChanges()) {
+            productsById.invalidate(change.getProductId());
+            invalidateCategory(change.getBefore());
+            invalidateCategory(change.getAfter());
+        }
+    }
+
+    private void invalidateCategory(ProductSnapshot snapshot) {
+        if (snapshot != null) {
+            productsByCategory.invalidate(snapshot.getCategory());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Applies the optimistic locking retry to @RetryOnConflict methods. The advisor is ordered before the
+ * transaction advisor, so every attempt runs in a transaction of its own.
+ */
+package com.reuveny.Electronics.config;
+
+import com.reuveny.Electronics.retry.ConflictRetryInterceptor;
+import com.reuveny.Electronics.retry.RetryOnConflict;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration(proxyBeanMethods = false)
+public class ConflictRetryConfig {
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor conflictRetryAdvisor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${retry.conflict.max-attempts:3}") int maxAttempts,
+            @Value("${retry.conflict.initial-backoff:10ms}") Duration initialBackoff,
+            @Value("${retry.conflict.max-backoff:200ms}") Duration maxBackoff
+    ) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class),
+                new ConflictRetryInterceptor(meterRegistry, maxAttempts, initialBackoff, maxBackoff));
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+}
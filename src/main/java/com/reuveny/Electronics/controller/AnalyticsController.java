@@ -0,0 +1,103 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Controller for the sales analytics dashboards, reading the pre-aggregated sales rollups.
+ */
+package com.reuveny.Electronics.controller;
+
+import com.reuveny.Electronics.dto.CategorySalesDto;
+import com.reuveny.Electronics.dto.DailySalesDto;
+import com.reuveny.Electronics.dto.ProductSalesDto;
+import com.reuveny.Electronics.service.SalesAnalyticsService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/analytics")
+@RequiredArgsConstructor
+@Tag(
+        name = "Analytics Controller",
+        description = "Handles the sales analytics endpoints"
+)
+public class AnalyticsController {
+    private static final int DEFAULT_DAYS = 30;
+
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    @Operation(
+            summary = "Get the sales per day",
+            description = "Orders, units sold and revenue of each day of the range with sales, cancelled orders " +
+                          "excluded. The range defaults to the last " + DEFAULT_DAYS + " days.",
+            parameters = {
+                    @Parameter(
+                            name = "from",
+                            description = "The first day of the range (ISO date)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "The last day of the range (ISO date, default is today)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/sales/daily")
+    public ResponseEntity<List<DailySalesDto>> getDailySales(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to
+    ) {
+        LocalDate lastDay = to != null ? to : LocalDate.now();
+        LocalDate firstDay = from != null ? from : lastDay.minusDays(DEFAULT_DAYS - 1);
+        List<DailySalesDto> dailySales = salesAnalyticsService.getDailySales(firstDay, lastDay);
+        return ResponseEntity.ok(dailySales);
+    }
+
+    @Operation(
+            summary = "Get the best-selling products",
+            parameters = {
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/sales/products")
+    public ResponseEntity<List<ProductSalesDto>> getTopSellingProducts(
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        List<ProductSalesDto> productSales = salesAnalyticsService.getTopSellingProducts(limit);
+        return ResponseEntity.ok(productSales);
+    }
+
+    @Operation(
+            summary = "Get the sales per category"
+    )
+    @GetMapping("/sales/categories")
+    public ResponseEntity<List<CategorySalesDto>> getCategorySales() {
+        List<CategorySalesDto> categorySales = salesAnalyticsService.getCategorySales();
+        return ResponseEntity.ok(categorySales);
+    }
+
+    @Operation(
+            summary = "Rebuild the sales rollups",
+            description = "Recomputes the rollups from all the orders. Checkouts wait until it is done."
+    )
+    @PostMapping("/sales/rebuild")
+    public ResponseEntity<String> rebuildSalesRollups() {
+        salesAnalyticsService.rebuildSalesRollups();
+        return ResponseEntity.ok("Sales rollups have been rebuilt successfully.");
+    }
+}
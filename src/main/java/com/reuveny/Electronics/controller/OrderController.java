@@ -6,23 +6,37 @@
  */
 package com.reuveny.Electronics.controller;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.OrderFilterDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionResultDto;
+import com.reuveny.Electronics.dto.OrderSummaryDto;
 import com.reuveny.Electronics.model.Order;
 import com.reuveny.Electronics.model.Status;
 import com.reuveny.Electronics.service.OrderService;
-import com.reuveny.Electronics.xml.OrderListWrapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.xml.namespace.QName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -32,6 +46,25 @@ import java.util.List;
         description = "Handles all order-related endpoints"
 )
 public class OrderController {
+    private static final int EXPORT_FLUSH_INTERVAL = 100;
+
+    private static final QName ORDERS_ELEMENT = new QName("orders");
+
+    private static final String ORDER_ELEMENT = "order";
+
+    /**
+     * Thread-safe and reused by every export, instead of building and configuring a mapper per request.
+     */
+    private static final XmlMapper XML_MAPPER = XmlMapper.builder()
+                                                         .addModule(new JavaTimeModule())
+                                                         .enable(SerializationFeature.INDENT_OUTPUT)
+                                                         .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                                                         .build();
+
+    private static final ObjectWriter XML_WRITER = XML_MAPPER.writer();
+
+    private static final ObjectWriter ORDER_WRITER = XML_MAPPER.writerFor(Order.class);
+
     private final OrderService orderService;
 
     @Operation(
@@ -62,19 +95,124 @@ public class OrderController {
     }
 
     @Operation(
-            summary = "Get all orders in XML format"
+            summary = "Filter orders page by page",
+            description = "Keyset pagination over the orders matching the given filters, newest first. Pass the " +
+                          "returned nextCursor as 'after', with the same filters, to fetch the following page.",
+            parameters = {
+                    @Parameter(
+                            name = "status",
+                            description = "Only orders with this status",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "from",
+                            description = "Only orders placed at or after this time (ISO date-time)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Only orders placed before this time (ISO date-time)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "userId",
+                            description = "Only orders of this user",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "after",
+                            description = "The cursor returned by the previous page (omit for the first page)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of orders to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/filter")
+    public ResponseEntity<CursorPageDto<OrderSummaryDto>> filterOrders(
+            @RequestParam(required = false) Status status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String after,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        OrderFilterDto filter = new OrderFilterDto(status, from, to, userId);
+        CursorPageDto<OrderSummaryDto> page = orderService.filterOrders(filter, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    @Operation(
+            summary = "Get all orders in XML format",
+            description = "Streams the orders, oldest first, with their items, so the response starts right away " +
+                          "and its size isn't limited by the server's memory.",
+            parameters = {
+                    @Parameter(
+                            name = "from",
+                            description = "Only orders placed at or after this time (ISO date-time)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "to",
+                            description = "Only orders placed before this time (ISO date-time)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "gzip",
+                            description = "Whether to compress the response with gzip (default is false)",
+                            required = false
+                    )
+            }
     )
     @GetMapping(
             value = "/all/xml-format",
             produces = MediaType.APPLICATION_XML_VALUE
     )
-    public ResponseEntity<String> getAllOrdersAsXML() throws JsonProcessingException {
-        List<Order> orders = orderService.getAllOrders();
-        XmlMapper xmlMapper = new XmlMapper();
-        xmlMapper.registerModule(new JavaTimeModule());
-        xmlMapper.enable(SerializationFeature.INDENT_OUTPUT);
-        String xmlString = xmlMapper.writeValueAsString(new OrderListWrapper(orders));
-        return ResponseEntity.ok(xmlString);
+    public ResponseEntity<StreamingResponseBody> getAllOrdersAsXML(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "false"
+            ) boolean gzip
+    ) {
+        // Checked up front, since once the body is streaming the status can't be changed anymore.
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("From date can't be after to date.");
+        }
+        StreamingResponseBody body = responseStream -> {
+            OutputStream outputStream = gzip ? new GZIPOutputStream(responseStream, true) : responseStream;
+            try (ToXmlGenerator generator = (ToXmlGenerator) XML_WRITER.createGenerator(outputStream)) {
+                generator.setNextName(ORDERS_ELEMENT);
+                generator.writeStartObject();
+                int[] written = {0};
+                orderService.exportOrders(from, to, order -> {
+                    try {
+                        generator.writeFieldName(ORDER_ELEMENT);
+                        ORDER_WRITER.writeValue(generator, order);
+                        // Flush the first order right away, then in chunks.
+                        if (written[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+                generator.writeEndObject();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                                                            .contentType(MediaType.APPLICATION_XML);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @Operation(
@@ -101,6 +239,21 @@ public class OrderController {
         return ResponseEntity.ok(updatedOrder);
     }
 
+    @Operation(
+            summary = "Update the status of many orders",
+            description = "Moves the orders given by their IDs, or matching a filter whose status they are moved " +
+                          "from, to the given status. Orders move from PENDING to PACKAGING to SHIPPED to " +
+                          "DELIVERED, and can be canceled until shipped. The other orders are rejected and " +
+                          "left unchanged."
+    )
+    @PutMapping("/bulk")
+    public ResponseEntity<OrderStatusTransitionResultDto> transitionOrderStatuses(
+            @RequestBody OrderStatusTransitionDto transition
+    ) {
+        OrderStatusTransitionResultDto result = orderService.transitionOrderStatuses(transition);
+        return ResponseEntity.ok(result);
+    }
+
     @Operation(
             summary = "Cancel an order",
             description = "Cancels an order if within the allowed cancellation period."
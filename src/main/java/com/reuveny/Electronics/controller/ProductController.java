@@ -6,6 +6,19 @@
  */
 package com.reuveny.Electronics.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.reuveny.Electronics.cache.CatalogVersion;
+import com.reuveny.Electronics.dto.CategoryFacetDto;
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateResultDto;
+import com.reuveny.Electronics.dto.ProductFilterDto;
+import com.reuveny.Electronics.dto.ProductImportResultDto;
+import com.reuveny.Electronics.dto.ProductSort;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
 import com.reuveny.Electronics.dto.ProductUpdateDto;
 import com.reuveny.Electronics.model.Category;
 import com.reuveny.Electronics.model.Product;
@@ -14,10 +27,17 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
@@ -28,10 +48,17 @@ import java.util.List;
         description = "Handles all product-related endpoints"
 )
 public class ProductController {
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+
     private final ProductService productService;
 
+    private final CatalogVersion catalogVersion;
+
+    private final ObjectMapper objectMapper;
+
     @Operation(
             summary = "Get product by ID",
+            description = "Supports conditional requests: answers 304 when If-None-Match holds the current ETag.",
             parameters = {
                     @Parameter(
                             name = "productId",
@@ -41,34 +68,231 @@ public class ProductController {
             }
     )
     @GetMapping("/{productId}")
-    public ResponseEntity<Product> getProductById(@PathVariable("productId") Long id) {
+    public ResponseEntity<Product> getProductById(
+            @PathVariable("productId") Long id,
+            WebRequest webRequest
+    ) {
         Product product = productService.getProductById(id);
-        return ResponseEntity.ok(product);
+        String eTag = "\"product-" + product.getId() + "-" + product.getVersion() + "\"";
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                             .eTag(eTag)
+                             .body(product);
     }
 
-    @Operation(summary = "Get all products")
+    @Operation(
+            summary = "Get all products",
+            description = "Supports conditional requests: answers 304 when If-None-Match holds the current ETag."
+    )
     @GetMapping("")
-    public ResponseEntity<List<Product>> getAllProducts() {
-        List<Product> products = productService.getAllProducts();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<List<ProductSummaryDto>> getAllProducts(WebRequest webRequest) {
+        // Read the version before the products, so a concurrent change can only make the tag too old.
+        String eTag = catalogVersion.getETag();
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        List<ProductSummaryDto> products = productService.getAllProducts();
+        return ResponseEntity.ok()
+                             .eTag(eTag)
+                             .body(products);
+    }
+
+    @Operation(
+            summary = "Export all products as NDJSON",
+            description = "Streams the whole catalog, one JSON product per line, ordered by ID."
+    )
+    @GetMapping(
+            value = "/export",
+            produces = MediaType.APPLICATION_NDJSON_VALUE
+    )
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        ObjectWriter productWriter = objectMapper.writerFor(Product.class)
+                                                 .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)) {
+                // Lines are terminated explicitly instead of separated by the default space.
+                generator.setRootValueSeparator(null);
+                int[] written = {0};
+                productService.exportProducts(product -> {
+                    try {
+                        productWriter.writeValue(generator, product);
+                        generator.writeRaw('\n');
+                        // Flush the first line right away, then in chunks.
+                        if (written[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                             .contentType(MediaType.APPLICATION_NDJSON)
+                             .body(body);
+    }
+
+    @Operation(
+            summary = "Get products page by page",
+            description = "Keyset pagination ordered by product ID. Pass the returned nextCursor " +
+                          "as 'after' to fetch the following page.",
+            parameters = {
+                    @Parameter(
+                            name = "after",
+                            description = "The cursor returned by the previous page (omit for the first page)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/page")
+    public ResponseEntity<CursorPageDto<ProductSummaryDto>> getProductsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        CursorPageDto<ProductSummaryDto> page = productService.getProductsPage(after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    @Operation(
+            summary = "Filter and sort products page by page",
+            description = "Keyset pagination over the products matching the given filters. Pass the returned " +
+                          "nextCursor as 'after', with the same filters and sort, to fetch the following page.",
+            parameters = {
+                    @Parameter(
+                            name = "category",
+                            description = "Only products of this category",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "minPrice",
+                            description = "Only products costing at least this price",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "maxPrice",
+                            description = "Only products costing at most this price",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "inStock",
+                            description = "Only products in stock (true) or out of stock (false)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "sort",
+                            description = "The order of the products (default is NEWEST)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "after",
+                            description = "The cursor returned by the previous page (omit for the first page)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/filter")
+    public ResponseEntity<CursorPageDto<ProductSummaryDto>> filterProducts(
+            @RequestParam(required = false) Category category,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "NEWEST"
+            ) ProductSort sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        ProductFilterDto filter = new ProductFilterDto(category, minPrice, maxPrice, inStock, sort);
+        CursorPageDto<ProductSummaryDto> page = productService.filterProducts(filter, after, limit);
+        return ResponseEntity.ok(page);
     }
 
     @Operation(
             summary = "Search products by name",
+            description = "Ranked search: every word of the query has to match a word of the name exactly, as " +
+                          "a prefix or within one typo, best match first. Unlike /search/page, which pages over " +
+                          "the names containing the query as is, so both can return different products.",
             parameters = {
                     @Parameter(
                             name = "query",
                             description = "The name or partial name of the product to search for",
                             required = true
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
                     )
             }
     )
     @GetMapping("/search")
-    public ResponseEntity<List<Product>> searchProductsByName(@RequestParam("query") String name) {
-        List<Product> products = productService.searchProductsByName(name);
+    public ResponseEntity<List<ProductSummaryDto>> searchProductsByName(
+            @RequestParam("query") String name,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        List<ProductSummaryDto> products = productService.searchProductsByName(name, limit);
         return ResponseEntity.ok(products);
     }
 
+    @Operation(
+            summary = "Search products by name page by page",
+            description = "Keyset pagination over the products whose name contains the query as is " +
+                          "(case-insensitive), in ID order. Unlike /search, words aren't matched separately " +
+                          "and typos aren't tolerated.",
+            parameters = {
+                    @Parameter(
+                            name = "query",
+                            description = "The name or partial name of the product to search for",
+                            required = true
+                    ),
+                    @Parameter(
+                            name = "after",
+                            description = "The cursor returned by the previous page (omit for the first page)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/search/page")
+    public ResponseEntity<CursorPageDto<ProductSummaryDto>> searchProductsByNamePage(
+            @RequestParam("query") String name,
+            @RequestParam(required = false) String after,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        CursorPageDto<ProductSummaryDto> page =
+                productService.searchProductsByNamePage(name, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
     @Operation(
             summary = "Get products by category",
             parameters = {
@@ -80,13 +304,57 @@ public class ProductController {
             }
     )
     @GetMapping("/category/{category}")
-    public ResponseEntity<List<Product>> getProductsByCategory(
+    public ResponseEntity<List<ProductSummaryDto>> getProductsByCategory(
             @PathVariable("category") Category category
     ) {
-        List<Product> products = productService.getProductsByCategory(category);
+        List<ProductSummaryDto> products = productService.getProductsByCategory(category);
         return ResponseEntity.ok(products);
     }
 
+    @Operation(
+            summary = "Get products by category page by page",
+            parameters = {
+                    @Parameter(
+                            name = "category",
+                            description = "The category to filter products by",
+                            required = true
+                    ),
+                    @Parameter(
+                            name = "after",
+                            description = "The cursor returned by the previous page (omit for the first page)",
+                            required = false
+                    ),
+                    @Parameter(
+                            name = "limit",
+                            description = "The maximum number of products to return (default is 20, at most 100)",
+                            required = false
+                    )
+            }
+    )
+    @GetMapping("/category/{category}/page")
+    public ResponseEntity<CursorPageDto<ProductSummaryDto>> getProductsByCategoryPage(
+            @PathVariable("category") Category category,
+            @RequestParam(required = false) String after,
+            @RequestParam(
+                    required = false,
+                    defaultValue = "20"
+            ) int limit
+    ) {
+        CursorPageDto<ProductSummaryDto> page =
+                productService.getProductsByCategoryPage(category, after, limit);
+        return ResponseEntity.ok(page);
+    }
+
+    @Operation(
+            summary = "Get category facets",
+            description = "Returns the product count, in-stock count and price range of every category."
+    )
+    @GetMapping("/facets")
+    public ResponseEntity<List<CategoryFacetDto>> getCategoryFacets() {
+        List<CategoryFacetDto> facets = productService.getCategoryFacets();
+        return ResponseEntity.ok(facets);
+    }
+
     @Operation(
             summary = "Add a new product",
             parameters = {
@@ -104,6 +372,28 @@ public class ProductController {
                              .body(addedProduct);
     }
 
+    @Operation(
+            summary = "Import products in bulk",
+            description = "Reads a JSON array, NDJSON or CSV (with a header row) request body and inserts " +
+                          "the valid products in batches. Invalid rows are skipped and reported in the summary."
+    )
+    @PostMapping(
+            value = "/import",
+            consumes = {
+                    MediaType.APPLICATION_JSON_VALUE,
+                    MediaType.APPLICATION_NDJSON_VALUE,
+                    "text/csv"
+            }
+    )
+    public ResponseEntity<ProductImportResultDto> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream input
+    ) {
+        ProductImportResultDto result =
+                productService.importProducts(input, MediaType.parseMediaType(contentType));
+        return ResponseEntity.ok(result);
+    }
+
     @Operation(
             summary = "Update a product",
             parameters = {
@@ -128,6 +418,26 @@ public class ProductController {
         return ResponseEntity.ok(updatedProduct);
     }
 
+    @Operation(
+            summary = "Update prices and stock of many products",
+            description = "Applies absolute values or deltas to the price and stock quantity of many products " +
+                          "in one transaction, and returns the outcome of every entry.",
+            parameters = {
+                    @Parameter(
+                            name = "updates",
+                            description = "The price and stock changes, one per product ID",
+                            required = true
+                    )
+            }
+    )
+    @PutMapping("/bulk")
+    public ResponseEntity<List<ProductBulkUpdateResultDto>> bulkUpdateProducts(
+            @RequestBody List<ProductBulkUpdateDto> updates
+    ) {
+        List<ProductBulkUpdateResultDto> results = productService.bulkUpdateProducts(updates);
+        return ResponseEntity.ok(results);
+    }
+
     @Operation(
             summary = "Delete a product",
             parameters = {
@@ -6,17 +6,27 @@
  */
 package com.reuveny.Electronics.controller;
 
+import com.reuveny.Electronics.cache.CheckoutIdempotencyCache;
+import com.reuveny.Electronics.dto.ShoppingCartItemUpdateDto;
+import com.reuveny.Electronics.model.CheckoutRequest;
 import com.reuveny.Electronics.model.Order;
 import com.reuveny.Electronics.model.ShoppingCart;
+import com.reuveny.Electronics.service.CheckoutQueueService;
 import com.reuveny.Electronics.service.ShoppingCartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/shopping-carts")
 @RequiredArgsConstructor
@@ -25,8 +35,17 @@ import org.springframework.web.bind.annotation.*;
         description = "Handles all shopping cart-related endpoints"
 )
 public class ShoppingCartController {
+    private static final String ASYNC_CHECKOUT_MODE = "async";
+
     private final ShoppingCartService shoppingCartService;
 
+    private final CheckoutIdempotencyCache checkoutIdempotencyCache;
+
+    private final CheckoutQueueService checkoutQueueService;
+
+    @Value("${checkout.mode:sync}")
+    private String checkoutMode;
+
     @Operation(
             summary = "Get shopping cart by user ID",
             parameters = {
@@ -105,6 +124,32 @@ public class ShoppingCartController {
         return ResponseEntity.ok(updatedShoppingCart);
     }
 
+    @Operation(
+            summary = "Update many products in shopping cart",
+            description = "Sets the quantities of many products in one transaction, reserving their stock all at " +
+                          "once. A quantity of 0 removes the product. Either every change is applied or none is.",
+            parameters = {
+                    @Parameter(
+                            name = "userId",
+                            description = "The ID of the user",
+                            required = true
+                    ),
+                    @Parameter(
+                            name = "updates",
+                            description = "The new quantities, one per product ID and at most 500 by default",
+                            required = true
+                    )
+            }
+    )
+    @PutMapping("/user/{userId}/items")
+    public ResponseEntity<ShoppingCart> updateCart(
+            @PathVariable("userId") Long userId,
+            @RequestBody List<ShoppingCartItemUpdateDto> updates
+    ) {
+        ShoppingCart updatedShoppingCart = shoppingCartService.updateCart(userId, updates);
+        return ResponseEntity.ok(updatedShoppingCart);
+    }
+
     @Operation(
             summary = "Clear shopping cart",
             parameters = {
@@ -125,20 +170,70 @@ public class ShoppingCartController {
 
     @Operation(
             summary = "Checkout and place an order",
+            description = "Places the order right away (201) in the sync checkout mode. In the async mode, queues " +
+                          "the checkout and returns its tracking record (202), whose status can be followed at " +
+                          "the Location header.",
             parameters = {
                     @Parameter(
                             name = "userId",
                             description = "The ID of the user",
                             required = true
+                    ),
+                    @Parameter(
+                            name = "Idempotency-Key",
+                            in = ParameterIn.HEADER,
+                            description = "A unique key sent with every attempt of the same checkout, so that " +
+                                          "retries return the order of the first attempt instead of placing another"
                     )
             }
     )
     @PostMapping("/user/{userId}/checkout")
-    public ResponseEntity<Order> checkout(
-            @PathVariable("userId") Long userId
+    public ResponseEntity<?> checkout(
+            @PathVariable("userId") Long userId,
+            @RequestHeader(
+                    value = "Idempotency-Key",
+                    required = false
+            ) String idempotencyKey
     ) {
-        Order order = shoppingCartService.checkout(userId);
+        if (ASYNC_CHECKOUT_MODE.equals(checkoutMode)) {
+            CheckoutRequest checkoutRequest = checkoutQueueService.enqueueCheckout(userId, idempotencyKey);
+            return ResponseEntity.accepted()
+                                 .location(URI.create("/api/v1/shopping-carts/checkouts/" + checkoutRequest.getId()))
+                                 .body(checkoutRequest);
+        }
+        Order order;
+        if (idempotencyKey == null) {
+            order = shoppingCartService.checkout(userId);
+        } else {
+            // Retries of a completed checkout are answered from memory, without a transaction.
+            byte[] cachedOrder = checkoutIdempotencyCache.get(userId, idempotencyKey);
+            if (cachedOrder != null) {
+                return ResponseEntity.status(HttpStatus.CREATED)
+                                     .contentType(MediaType.APPLICATION_JSON)
+                                     .body(cachedOrder);
+            }
+            order = shoppingCartService.checkout(userId, idempotencyKey);
+            checkoutIdempotencyCache.put(userId, idempotencyKey, order);
+        }
         return ResponseEntity.status(HttpStatus.CREATED)
                              .body(order);
     }
-}
\ No newline at end of file
+
+    @Operation(
+            summary = "Get the status of an asynchronous checkout",
+            parameters = {
+                    @Parameter(
+                            name = "checkoutId",
+                            description = "The ID of the checkout, returned when it was queued",
+                            required = true
+                    )
+            }
+    )
+    @GetMapping("/checkouts/{checkoutId}")
+    public ResponseEntity<CheckoutRequest> getCheckout(
+            @PathVariable("checkoutId") Long checkoutId
+    ) {
+        CheckoutRequest checkoutRequest = checkoutQueueService.getCheckoutRequest(checkoutId);
+        return ResponseEntity.ok(checkoutRequest);
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Aggregated figures of one product category, used by the storefront to render its filters.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CategoryFacetDto {
+    private Category category;
+
+    private Long productCount;
+
+    private Long inStockCount;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+}
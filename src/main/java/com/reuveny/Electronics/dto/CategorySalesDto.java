@@ -0,0 +1,23 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The units sold and revenue of one product category, cancelled orders excluded.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CategorySalesDto {
+    private Category category;
+
+    private Long units;
+
+    private Double revenue;
+}
@@ -0,0 +1,24 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Represents one page of a keyset-paginated listing together with the opaque cursor of the next page.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CursorPageDto<T> {
+    private List<T> items;
+
+    private String nextCursor;
+
+    private boolean hasMore;
+}
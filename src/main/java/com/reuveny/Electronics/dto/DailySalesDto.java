@@ -0,0 +1,26 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The orders, units sold and revenue of one day, cancelled orders excluded.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class DailySalesDto {
+    private LocalDate date;
+
+    private Long orderCount;
+
+    private Long units;
+
+    private Double revenue;
+}
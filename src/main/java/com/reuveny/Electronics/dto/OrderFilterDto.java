@@ -0,0 +1,33 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Filters of the order listing. Null filters are not applied.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class OrderFilterDto {
+    private Status status;
+
+    /**
+     * Only orders placed at or after this time.
+     */
+    private LocalDateTime from;
+
+    /**
+     * Only orders placed before this time.
+     */
+    private LocalDateTime to;
+
+    private Long userId;
+}
@@ -0,0 +1,28 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * A status change to apply to many orders at once, given either by their IDs or by a filter.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class OrderStatusTransitionDto {
+    private List<Long> orderIds;
+
+    /**
+     * Selects the orders instead of their IDs. Its status is the one the orders are moved from, and is required.
+     */
+    private OrderFilterDto filter;
+
+    private Status status;
+}
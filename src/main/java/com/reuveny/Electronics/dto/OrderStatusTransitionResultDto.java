@@ -0,0 +1,30 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The outcome of a bulk order status change.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class OrderStatusTransitionResultDto {
+    private int updatedCount;
+
+    /**
+     * The orders not found, or whose status doesn't allow the change.
+     */
+    private int rejectedCount;
+
+    /**
+     * The first rejected order IDs, up to a maximum.
+     */
+    private List<Long> rejectedOrderIds;
+}
@@ -0,0 +1,34 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Lightweight view of an order for list endpoints: the order row itself, without its items and products.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.reuveny.Electronics.model.Status;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class OrderSummaryDto {
+    private Long id;
+
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd, HH:mm:ss"
+    )
+    private LocalDateTime orderDate;
+
+    private double totalAmount;
+
+    private Status status;
+
+    private Long userId;
+}
@@ -0,0 +1,27 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * One entry of a bulk product update: a new price and/or stock quantity for a product,
+ * each given either as an absolute value or as a delta to apply to the current one.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductBulkUpdateDto {
+    private Long productId;
+
+    private Double price;
+
+    private Double priceDelta;
+
+    private Integer stockQuantity;
+
+    private Integer stockQuantityDelta;
+}
@@ -0,0 +1,32 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Outcome of one entry of a bulk product update, with the resulting price and stock quantity.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductBulkUpdateResultDto {
+    public enum Status {
+        UPDATED,
+        NOT_FOUND,
+        REJECTED
+    }
+
+    private Long productId;
+
+    private Status status;
+
+    private String reason;
+
+    private Double price;
+
+    private Integer stockQuantity;
+}
@@ -0,0 +1,30 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Filters and sort order of the product listing. Null filters are not applied.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductFilterDto {
+    private Category category;
+
+    private Double minPrice;
+
+    private Double maxPrice;
+
+    /**
+     * True for products in stock only, false for out of stock products only.
+     */
+    private Boolean inStock;
+
+    private ProductSort sort;
+}
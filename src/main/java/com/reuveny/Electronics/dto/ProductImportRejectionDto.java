@@ -0,0 +1,20 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Describes a row of a bulk product import that was rejected, and why.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductImportRejectionDto {
+    private long row;
+
+    private String reason;
+}
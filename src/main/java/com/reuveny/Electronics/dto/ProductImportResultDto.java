@@ -0,0 +1,31 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Summary of a bulk product import: how many rows were imported or rejected, and how fast.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductImportResultDto {
+    private long importedRows;
+
+    private long rejectedRows;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    /**
+     * The first rejected rows with their reason (capped, see rejectedRows for the total).
+     */
+    private List<ProductImportRejectionDto> rejections;
+}
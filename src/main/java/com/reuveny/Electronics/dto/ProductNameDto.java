@@ -0,0 +1,20 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Carries only the ID and name of a product, used to build the search index without loading full rows.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductNameDto {
+    private Long id;
+
+    private String name;
+}
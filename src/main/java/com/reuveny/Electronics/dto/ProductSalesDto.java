@@ -0,0 +1,27 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The units sold and revenue of one product, cancelled orders excluded.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductSalesDto {
+    private Long productId;
+
+    /**
+     * Null if the product has been deleted since.
+     */
+    private String productName;
+
+    private Long units;
+
+    private Double revenue;
+}
@@ -0,0 +1,29 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Sort orders supported by the product listing. Every order ends with the product ID as a tie-breaker,
+ * so it is total and can be paginated with a keyset cursor.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+@AllArgsConstructor
+@Getter
+public enum ProductSort {
+    NEWEST("id", Sort.Direction.DESC),
+    PRICE_ASC("price", Sort.Direction.ASC),
+    PRICE_DESC("price", Sort.Direction.DESC),
+    NAME("name", Sort.Direction.ASC);
+
+    private final String property;
+
+    private final Sort.Direction direction;
+
+    public Sort toSort() {
+        return "id".equals(property) ? Sort.by(direction, property) : Sort.by(direction, property, "id");
+    }
+}
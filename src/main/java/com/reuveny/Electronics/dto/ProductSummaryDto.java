@@ -0,0 +1,30 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Lightweight view of a product for list endpoints: the columns a listing shows, without the description
+ * or the item and wishlist associations of the full entity.
+ */
+package com.reuveny.Electronics.dto;
+
+import com.reuveny.Electronics.model.Category;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ProductSummaryDto {
+    private Long id;
+
+    private String name;
+
+    private Double price;
+
+    private String imgUrl;
+
+    private Integer stockQuantity;
+
+    private Category category;
+}
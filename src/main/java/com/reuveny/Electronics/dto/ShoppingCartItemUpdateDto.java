@@ -0,0 +1,21 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * One entry of a batch shopping cart update: the new quantity of a product in the cart,
+ * where 0 removes the product from the cart.
+ */
+package com.reuveny.Electronics.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ShoppingCartItemUpdateDto {
+    private Long productId;
+
+    private Integer quantity;
+}
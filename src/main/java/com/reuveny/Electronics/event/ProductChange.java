@@ -0,0 +1,38 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Describes how a single product changed: its state before and after the change.
+ * A null 'before' means the product was created, a null 'after' means it was deleted.
+ */
+package com.reuveny.Electronics.event;
+
+import com.reuveny.Electronics.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+public class ProductChange {
+    private final Long productId;
+
+    private final ProductSnapshot before;
+
+    private final ProductSnapshot after;
+
+    public static ProductChange created(Product product) {
+        return new ProductChange(product.getId(), null, ProductSnapshot.of(product));
+    }
+
+    public static ProductChange updated(ProductSnapshot before, Product product) {
+        return new ProductChange(product.getId(), before, ProductSnapshot.of(product));
+    }
+
+    public static ProductChange deleted(Product product) {
+        return new ProductChange(product.getId(), ProductSnapshot.of(product), null);
+    }
+
+    public static ProductChange stockChanged(Long productId, ProductSnapshot after, int previousStockQuantity) {
+        return new ProductChange(productId, after.withStockQuantity(previousStockQuantity), after);
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Published whenever products are created, updated, deleted or have their stock changed.
+ * Listeners derived from the catalog (caches, indexes, aggregates) consume it after the
+ * publishing transaction commits.
+ */
+package com.reuveny.Electronics.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+public class ProductChangedEvent {
+    private final List<ProductChange> changes;
+
+    public static ProductChangedEvent of(ProductChange change) {
+        return new ProductChangedEvent(List.of(change));
+    }
+}
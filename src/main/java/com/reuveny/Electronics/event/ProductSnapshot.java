@@ -0,0 +1,33 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Immutable copy of the product fields that listings, caches and indexes are derived from.
+ */
+package com.reuveny.Electronics.event;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@AllArgsConstructor
+@Data
+public class ProductSnapshot {
+    private final String name;
+
+    private final Category category;
+
+    private final Double price;
+
+    private final Integer stockQuantity;
+
+    public static ProductSnapshot of(Product product) {
+        return new ProductSnapshot(product.getName(), product.getCategory(), product.getPrice(),
+                                   product.getStockQuantity());
+    }
+
+    public ProductSnapshot withStockQuantity(Integer stockQuantity) {
+        return new ProductSnapshot(name, category, price, stockQuantity);
+    }
+}
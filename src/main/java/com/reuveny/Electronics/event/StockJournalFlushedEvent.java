@@ -0,0 +1,16 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Published when the stock changes recorded by the in-memory inventory are written to the products,
+ * so the inventory can tell them apart from the stock changes made to the products directly.
+ */
+package com.reuveny.Electronics.event;
+
+import java.util.List;
+
+public class StockJournalFlushedEvent extends ProductChangedEvent {
+    public StockJournalFlushedEvent(List<ProductChange> changes) {
+        super(changes);
+    }
+}
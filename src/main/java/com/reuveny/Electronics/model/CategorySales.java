@@ -0,0 +1,47 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The sales of one product category, kept up to date by every order placed, cancelled or restored.
+ * Like the daily sales, each category is spread over a few slots, since every checkout updates one.
+ */
+package com.reuveny.Electronics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(
+        name = "category_sales",
+        indexes = @Index(
+                name = "uk_category_sales_category_slot",
+                columnList = "category, slot",
+                unique = true
+        )
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CategorySales {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    @Column(nullable = false)
+    private Integer slot;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(
+            name = "revenue_cents",
+            nullable = false
+    )
+    private Long revenueCents;
+}
@@ -0,0 +1,64 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * An idempotency key a user checked out with, and the order placed for it, so that retried
+ * checkouts with the same key return that order instead of placing another one.
+ */
+package com.reuveny.Electronics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(
+        name = "checkout_idempotency_keys",
+        indexes = {
+                @Index(
+                        name = "uk_checkout_idempotency_keys_user_id_idempotency_key",
+                        columnList = "user_id, idempotency_key",
+                        unique = true
+                ),
+                @Index(
+                        name = "idx_checkout_idempotency_keys_created_at",
+                        columnList = "created_at"
+                )
+        }
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutIdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(
+            name = "user_id",
+            nullable = false
+    )
+    private Long userId;
+
+    @Column(
+            name = "idempotency_key",
+            nullable = false
+    )
+    private String idempotencyKey;
+
+    /**
+     * Not a foreign key, so that the order can still be cancelled while its key is kept.
+     */
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(
+            name = "created_at",
+            nullable = false,
+            columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+    )
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,89 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * A checkout queued in the transactional outbox by the asynchronous checkout mode, and its outcome:
+ * the order placed by a worker or the reason it failed.
+ */
+package com.reuveny.Electronics.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(
+        name = "checkout_requests",
+        indexes = {
+                @Index(
+                        name = "uk_checkout_requests_user_id_idempotency_key",
+                        columnList = "user_id, idempotency_key",
+                        unique = true
+                ),
+                @Index(
+                        name = "idx_checkout_requests_status_id",
+                        columnList = "status, id"
+                )
+        }
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutRequest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(
+            name = "user_id",
+            nullable = false
+    )
+    private Long userId;
+
+    @Column(name = "idempotency_key")
+    @JsonIgnore
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private CheckoutStatus status;
+
+    @Column(name = "order_id")
+    private Long orderId;
+
+    @Column(
+            name = "failure_reason",
+            length = 1000
+    )
+    private String failureReason;
+
+    @Column(
+            name = "created_at",
+            nullable = false
+    )
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd, HH:mm:ss"
+    )
+    private LocalDateTime createdAt;
+
+    /**
+     * When a worker last claimed the checkout. Claims older than the claim timeout are given up
+     * as the worker's crash, and claimed again.
+     */
+    @Column(name = "claimed_at")
+    @JsonIgnore
+    private LocalDateTime claimedAt;
+
+    @Column(name = "completed_at")
+    @JsonFormat(
+            shape = JsonFormat.Shape.STRING,
+            pattern = "yyyy-MM-dd, HH:mm:ss"
+    )
+    private LocalDateTime completedAt;
+}
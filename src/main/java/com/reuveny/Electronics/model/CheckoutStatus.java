@@ -0,0 +1,14 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Enum representing the statuses of an asynchronous checkout (Pending, Processing, Completed, Failed).
+ */
+package com.reuveny.Electronics.model;
+
+public enum CheckoutStatus {
+    PENDING,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
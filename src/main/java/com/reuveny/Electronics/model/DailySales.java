@@ -0,0 +1,59 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The sales of one day, kept up to date by every order placed, cancelled or restored, so that revenue
+ * reports don't have to scan the orders and their items.
+ * Each day is spread over a few slots, picked by order ID, so that concurrent checkouts don't all wait
+ * on a single row; a day's figures are the sum of its slots.
+ */
+package com.reuveny.Electronics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Entity
+@Table(
+        name = "daily_sales",
+        indexes = @Index(
+                name = "uk_daily_sales_sales_date_slot",
+                columnList = "sales_date, slot",
+                unique = true
+        )
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DailySales {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(
+            name = "sales_date",
+            nullable = false
+    )
+    private LocalDate salesDate;
+
+    @Column(nullable = false)
+    private Integer slot;
+
+    @Column(
+            name = "order_count",
+            nullable = false
+    )
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(
+            name = "revenue_cents",
+            nullable = false
+    )
+    private Long revenueCents;
+}
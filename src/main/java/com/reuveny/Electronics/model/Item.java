@@ -13,8 +13,27 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
-@Table(name = "items")
+@Table(
+        name = "items",
+        indexes = {
+                @Index(
+                        name = "uk_items_shopping_cart_id_product_id",
+                        columnList = "shopping_cart_id, product_id",
+                        unique = true
+                ),
+                @Index(
+                        name = "idx_items_reserved_at",
+                        columnList = "reserved_at"
+                ),
+                @Index(
+                        name = "idx_items_order_id",
+                        columnList = "order_id"
+                )
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -28,6 +47,33 @@ public class Item {
     @JacksonXmlProperty(localName = "quantity")
     private Integer quantity;
 
+    /**
+     * The product price when the item was last added, which the cart total is made of.
+     */
+    @Column(name = "unit_price_cents")
+    @JsonIgnore
+    private Long unitPriceCents;
+
+    /**
+     * The product category when the order was placed, which the category sales are rolled up by.
+     * Null for cart items.
+     */
+    @Column(name = "category")
+    @Enumerated(EnumType.STRING)
+    @JsonIgnore
+    private Category category;
+
+    /**
+     * When the stock of a cart line was last reserved; its reservation expires a TTL later.
+     * Null for order items.
+     */
+    @Column(
+            name = "reserved_at",
+            columnDefinition = "TIMESTAMP DEFAULT CURRENT_TIMESTAMP"
+    )
+    @JsonIgnore
+    private LocalDateTime reservedAt;
+
     @ManyToOne
     @JoinColumn(
             name = "product_id",
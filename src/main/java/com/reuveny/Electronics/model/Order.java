@@ -20,7 +20,23 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders")
+@Table(
+        name = "orders",
+        indexes = {
+                @Index(
+                        name = "idx_orders_order_date_id",
+                        columnList = "order_date, id"
+                ),
+                @Index(
+                        name = "idx_orders_status_order_date_id",
+                        columnList = "status, order_date, id"
+                ),
+                @Index(
+                        name = "idx_orders_user_id_order_date_id",
+                        columnList = "user_id, order_date, id"
+                )
+        }
+)
 @JacksonXmlRootElement(localName = "order")
 @Data
 @AllArgsConstructor
@@ -58,7 +74,7 @@ public class Order {
     @JacksonXmlProperty(localName = "item")
     private List<Item> items;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(
             name = "user_id",
             nullable = false
@@ -7,6 +7,7 @@
 package com.reuveny.Electronics.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -16,7 +17,31 @@ import lombok.NoArgsConstructor;
 import java.util.List;
 
 @Entity
-@Table(name = "products")
+@Table(
+        name = "products",
+        indexes = {
+                @Index(
+                        name = "idx_products_category_id",
+                        columnList = "category, id"
+                ),
+                @Index(
+                        name = "idx_products_category_price_id",
+                        columnList = "category, price, id"
+                ),
+                @Index(
+                        name = "idx_products_category_name_id",
+                        columnList = "category, name, id"
+                ),
+                @Index(
+                        name = "idx_products_price_id",
+                        columnList = "price, id"
+                ),
+                @Index(
+                        name = "idx_products_name_id",
+                        columnList = "name, id"
+                )
+        }
+)
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -57,6 +82,15 @@ public class Product {
     @JacksonXmlProperty(localName = "category")
     private Category category;
 
+    @Version
+    @Column(
+            nullable = false,
+            columnDefinition = "BIGINT DEFAULT 0"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JacksonXmlProperty(localName = "version")
+    private Long version;
+
     @OneToMany(
             mappedBy = "product",
             cascade = CascadeType.ALL,
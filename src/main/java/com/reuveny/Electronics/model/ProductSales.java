@@ -0,0 +1,49 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * The sales of one product, kept up to date by every order placed, cancelled or restored.
+ * A checkout already locks the rows of the products it reserves, so each product has a single row.
+ */
+package com.reuveny.Electronics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(
+        name = "product_sales",
+        indexes = @Index(
+                name = "uk_product_sales_product_id",
+                columnList = "product_id",
+                unique = true
+        )
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductSales {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Not a foreign key, so that a product can still be deleted while its sales are kept.
+     */
+    @Column(
+            name = "product_id",
+            nullable = false
+    )
+    private Long productId;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(
+            name = "revenue_cents",
+            nullable = false
+    )
+    private Long revenueCents;
+}
@@ -3,10 +3,13 @@
  * @author Elad Reuveny
  *
  * Represents a user's shopping cart, holding items and total amount.
+ * The total is kept in cents and updated by the line that changes rather than recomputed.
  */
 package com.reuveny.Electronics.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.reuveny.Electronics.util.Money;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -24,8 +27,20 @@ public class ShoppingCart {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column
-    private Double totalAmount = 0.0;
+    /**
+     * Null for carts saved before totals were kept in cents, until they are priced when the application starts.
+     */
+    @Column(name = "total_amount_cents")
+    @JsonIgnore
+    private Long totalAmountCents = 0L;
+
+    @Version
+    @Column(
+            nullable = false,
+            columnDefinition = "BIGINT DEFAULT 0"
+    )
+    @JsonIgnore
+    private Long version;
 
     @OneToOne(mappedBy = "shoppingCart")
     @JsonIgnore
@@ -37,4 +52,9 @@ public class ShoppingCart {
             orphanRemoval = true
     )
     private List<Item> items;
+
+    @JsonProperty("totalAmount")
+    public double getTotalAmount() {
+        return totalAmountCents == null ? 0.0 : Money.fromCents(totalAmountCents);
+    }
 }
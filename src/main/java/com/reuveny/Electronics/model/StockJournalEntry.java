@@ -0,0 +1,38 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * A stock change recorded by the in-memory inventory and not yet written to its product.
+ */
+package com.reuveny.Electronics.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Entity
+@Table(
+        name = "stock_journal",
+        indexes = @Index(
+                name = "idx_stock_journal_product_id",
+                columnList = "product_id"
+        )
+)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockJournalEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(
+            name = "product_id",
+            nullable = false
+    )
+    private Long productId;
+
+    @Column(nullable = false)
+    private Integer delta;
+}
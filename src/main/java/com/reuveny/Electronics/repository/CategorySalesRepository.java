@@ -0,0 +1,23 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Reads the category sales rollup.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.CategorySalesDto;
+import com.reuveny.Electronics.model.CategorySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface CategorySalesRepository extends JpaRepository<CategorySales, Long> {
+    @Query("SELECT new com.reuveny.Electronics.dto.CategorySalesDto(s.category, SUM(s.units), " +
+           "SUM(s.revenueCents) / 100.0) FROM CategorySales s " +
+           "GROUP BY s.category ORDER BY SUM(s.revenueCents) DESC")
+    List<CategorySalesDto> findCategorySales();
+}
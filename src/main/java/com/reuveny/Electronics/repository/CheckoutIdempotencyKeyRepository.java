@@ -0,0 +1,55 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Manages the idempotency keys of checkouts.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.model.CheckoutIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutIdempotencyKeyRepository extends JpaRepository<CheckoutIdempotencyKey, Long> {
+    /**
+     * Claims an idempotency key of a user for a checkout. If another transaction claimed the key and
+     * is still running, waits for it to end.
+     *
+     * @param userId         The ID of the user.
+     * @param idempotencyKey The idempotency key.
+     * @return 1 if the key has been claimed, 0 if it had already been claimed by a committed checkout.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO checkout_idempotency_keys (user_id, idempotency_key, created_at) " +
+                   "VALUES (:userId, :idempotencyKey, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (user_id, idempotency_key) DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("userId") Long userId, @Param("idempotencyKey") String idempotencyKey);
+
+    @Query("SELECT k.orderId FROM CheckoutIdempotencyKey k " +
+           "WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey")
+    Optional<Long> findOrderIdByUserIdAndIdempotencyKey(
+            @Param("userId") Long userId,
+            @Param("idempotencyKey") String idempotencyKey
+    );
+
+    @Modifying
+    @Query("UPDATE CheckoutIdempotencyKey k SET k.orderId = :orderId " +
+           "WHERE k.userId = :userId AND k.idempotencyKey = :idempotencyKey")
+    void updateOrderId(
+            @Param("userId") Long userId,
+            @Param("idempotencyKey") String idempotencyKey,
+            @Param("orderId") Long orderId
+    );
+
+    @Modifying
+    @Query("DELETE FROM CheckoutIdempotencyKey k WHERE k.createdAt < :createdBefore")
+    int deleteByCreatedAtBefore(@Param("createdBefore") LocalDateTime createdBefore);
+}
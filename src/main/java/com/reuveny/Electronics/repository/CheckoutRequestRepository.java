@@ -0,0 +1,68 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Manages the checkout outbox of the asynchronous checkout mode.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.model.CheckoutRequest;
+import com.reuveny.Electronics.model.CheckoutStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CheckoutRequestRepository extends JpaRepository<CheckoutRequest, Long> {
+    /**
+     * Queues a checkout of a user with an idempotency key, unless one with the same key is queued already.
+     *
+     * @return 1 if the checkout has been queued, 0 if there already is one with the key.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO checkout_requests (user_id, idempotency_key, status, created_at) " +
+                   "VALUES (:userId, :idempotencyKey, 'PENDING', CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT (user_id, idempotency_key) DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("userId") Long userId, @Param("idempotencyKey") String idempotencyKey);
+
+    Optional<CheckoutRequest> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    /**
+     * Locks the oldest checkouts that are pending, or whose claim is older than the given time, skipping
+     * those other workers hold. Must be called inside a transaction.
+     *
+     * @return The IDs of the locked checkouts.
+     */
+    @Query(value = "SELECT id FROM checkout_requests " +
+                   "WHERE status = 'PENDING' OR status = 'PROCESSING' AND claimed_at < :claimedBefore " +
+                   "ORDER BY id " +
+                   "LIMIT :limit " +
+                   "FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Long> lockClaimableIds(@Param("claimedBefore") LocalDateTime claimedBefore, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE CheckoutRequest r SET r.status = :status, r.claimedAt = :claimedAt WHERE r.id IN :ids")
+    void updateClaims(
+            @Param("ids") Collection<Long> ids,
+            @Param("status") CheckoutStatus status,
+            @Param("claimedAt") LocalDateTime claimedAt
+    );
+
+    /**
+     * Retrieves a checkout and locks it until the end of the transaction, so that it is processed once.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM CheckoutRequest r WHERE r.id = :id")
+    Optional<CheckoutRequest> findByIdForUpdate(@Param("id") Long id);
+}
@@ -0,0 +1,26 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Reads the daily sales rollup.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.DailySalesDto;
+import com.reuveny.Electronics.model.DailySales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface DailySalesRepository extends JpaRepository<DailySales, Long> {
+    @Query("SELECT new com.reuveny.Electronics.dto.DailySalesDto(s.salesDate, SUM(s.orderCount), SUM(s.units), " +
+           "SUM(s.revenueCents) / 100.0) FROM DailySales s " +
+           "WHERE s.salesDate BETWEEN :from AND :to " +
+           "GROUP BY s.salesDate HAVING SUM(s.orderCount) > 0 ORDER BY s.salesDate")
+    List<DailySalesDto> findDailySales(@Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -10,6 +10,36 @@ import com.reuveny.Electronics.model.Item;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
+    /**
+     * Retrieves the line of a product in a shopping cart with a lookup on the unique
+     * (shopping_cart_id, product_id) index, without loading the cart's other lines.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param productId      The ID of the product.
+     * @return The cart line of the product, or empty if it isn't in the cart.
+     */
+    Optional<Item> findByShoppingCartIdAndProductId(Long shoppingCartId, Long productId);
+
+    /**
+     * Retrieves the lines of the given products in a shopping cart with a single indexed query.
+     *
+     * @param shoppingCartId The ID of the shopping cart.
+     * @param productIds     The IDs of the products.
+     * @return The cart lines of those of the products that are in the cart.
+     */
+    List<Item> findByShoppingCartIdAndProductIdIn(Long shoppingCartId, Collection<Long> productIds);
+
+    /**
+     * Checks whether a user's shopping cart has any line, without loading them.
+     *
+     * @param userId The ID of the user.
+     * @return true if the cart has at least one line.
+     */
+    boolean existsByShoppingCartUserId(Long userId);
 }
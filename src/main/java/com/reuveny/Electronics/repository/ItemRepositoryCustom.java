@@ -0,0 +1,39 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Item persistence operations implemented with plain JDBC, for bulk work JPA can't do without loading entities.
+ */
+package com.reuveny.Electronics.repository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+public interface ItemRepositoryCustom {
+    /**
+     * Deletes, with a single statement, up to the given number of cart lines reserved before the given time,
+     * oldest first, and takes their amounts out of their carts' totals. Lines locked by concurrent cart
+     * changes are skipped.
+     *
+     * @param reservedBefore The time the reservation of the lines to delete has to be older than.
+     * @param limit          The maximum number of lines to delete.
+     * @return The deleted quantity per product ID.
+     */
+    Map<Long, Integer> deleteExpiredCartItems(LocalDateTime reservedBefore, int limit);
+
+    /**
+     * Deletes all the lines of a user's shopping cart with a single statement.
+     *
+     * @param userId The ID of the user.
+     * @return The deleted quantity per product ID, empty if the cart is empty or not found.
+     */
+    Map<Long, Integer> deleteCartItemsByUserId(Long userId);
+
+    /**
+     * Deletes all the items of an order with a single statement.
+     *
+     * @param orderId The ID of the order.
+     * @return The deleted quantity per product ID, empty if the order has no items or isn't found.
+     */
+    Map<Long, Integer> deleteOrderItems(Long orderId);
+}
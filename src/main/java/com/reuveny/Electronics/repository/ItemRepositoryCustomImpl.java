@@ -0,0 +1,83 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * JDBC implementation of the custom item repository operations.
+ */
+package com.reuveny.Electronics.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class ItemRepositoryCustomImpl implements ItemRepositoryCustom {
+    private static final String DELETE_EXPIRED_CART_ITEMS_SQL =
+            "WITH expired AS (" +
+            "    SELECT id FROM items " +
+            "    WHERE shopping_cart_id IS NOT NULL AND reserved_at < ? " +
+            "    ORDER BY reserved_at " +
+            "    LIMIT ? " +
+            "    FOR UPDATE SKIP LOCKED" +
+            "), " +
+            "deleted AS (" +
+            "    DELETE FROM items i USING expired e WHERE i.id = e.id " +
+            "    RETURNING i.shopping_cart_id, i.product_id, i.quantity, i.unit_price_cents" +
+            "), " +
+            "carts AS (" +
+            "    UPDATE shopping_carts c " +
+            "    SET total_amount_cents = c.total_amount_cents - d.amount_cents, version = c.version + 1 " +
+            "    FROM (" +
+            "        SELECT shopping_cart_id, SUM(quantity * unit_price_cents) AS amount_cents " +
+            "        FROM deleted GROUP BY shopping_cart_id" +
+            "    ) d " +
+            "    WHERE c.id = d.shopping_cart_id" +
+            ") " +
+            "SELECT product_id, SUM(quantity) AS quantity FROM deleted GROUP BY product_id";
+
+    private static final String DELETE_CART_ITEMS_BY_USER_ID_SQL =
+            "WITH deleted AS (" +
+            "    DELETE FROM items i USING users u " +
+            "    WHERE u.id = ? AND i.shopping_cart_id = u.shopping_cart_id " +
+            "    RETURNING i.product_id, i.quantity" +
+            ") " +
+            "SELECT product_id, SUM(quantity) AS quantity FROM deleted GROUP BY product_id";
+
+    private static final String DELETE_ORDER_ITEMS_SQL =
+            "WITH deleted AS (" +
+            "    DELETE FROM items WHERE order_id = ? " +
+            "    RETURNING product_id, quantity" +
+            ") " +
+            "SELECT product_id, SUM(quantity) AS quantity FROM deleted GROUP BY product_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Long, Integer> deleteExpiredCartItems(LocalDateTime reservedBefore, int limit) {
+        return queryQuantities(DELETE_EXPIRED_CART_ITEMS_SQL, Timestamp.valueOf(reservedBefore), limit);
+    }
+
+    @Override
+    public Map<Long, Integer> deleteCartItemsByUserId(Long userId) {
+        return queryQuantities(DELETE_CART_ITEMS_BY_USER_ID_SQL, userId);
+    }
+
+    @Override
+    public Map<Long, Integer> deleteOrderItems(Long orderId) {
+        return queryQuantities(DELETE_ORDER_ITEMS_SQL, orderId);
+    }
+
+    private Map<Long, Integer> queryQuantities(String sql, Object... parameters) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        jdbcTemplate.query(sql,
+                           resultSet -> {
+                               quantities.put(resultSet.getLong("product_id"), resultSet.getInt("quantity"));
+                           },
+                           parameters);
+        return quantities;
+    }
+}
@@ -7,12 +7,56 @@
 package com.reuveny.Electronics.repository;
 
 import com.reuveny.Electronics.model.Order;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+    /**
+     * Retrieves the orders of a user with their items and their products in a single query, so that
+     * serializing the order history doesn't load them order by order.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product"})
     List<Order> findByUserId(Long userId);
+
+    /**
+     * Retrieves all orders with their items and their products in a single query.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    List<Order> findAllWithItemsBy();
+
+    /**
+     * Retrieves an order with its items and their products in a single query, so that it can be
+     * used after its transaction.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findWithItemsById(Long id);
+
+    /**
+     * Retrieves an order, locking its row until the end of the transaction, so that concurrent status
+     * changes and cancellations of the same order run one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Order> findLockedById(Long id);
+
+    /**
+     * Retrieves an order with its items and their products, locking its row until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    Optional<Order> findLockedWithItemsById(Long id);
+
+    /**
+     * Retrieves the given orders with their items and their products in a single query.
+     */
+    @EntityGraph(attributePaths = {"items", "items.product"})
+    List<Order> findWithItemsByIdIn(Collection<Long> ids, Sort sort);
 }
@@ -0,0 +1,95 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Order queries JPA repositories can't derive, such as projections of filtered listings, and the upkeep of
+ * the sales rollups.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.OrderSummaryDto;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Status;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderRepositoryCustom {
+    /**
+     * Retrieves the summaries of the orders matching the given criteria, selecting only the order
+     * columns, without joining the items.
+     *
+     * @param specification The criteria the orders have to match.
+     * @param sort          The order of the results.
+     * @param limit         The maximum number of results.
+     * @return The matching order summaries, in the given order.
+     */
+    List<OrderSummaryDto> findSummaries(Specification<Order> specification, Sort sort, Limit limit);
+
+    /**
+     * Retrieves the keys of the orders matching the given criteria, which the (order_date, id) indexes
+     * answer without reading the orders table.
+     *
+     * @param specification The criteria the orders have to match.
+     * @param sort          The order of the results.
+     * @param limit         The maximum number of results.
+     * @return The order date and ID of each matching order, in the given order.
+     */
+    List<OrderKey> findKeys(Specification<Order> specification, Sort sort, Limit limit);
+
+    /**
+     * Adds the items of an order to the daily, product and category sales, with a single statement.
+     *
+     * @param orderId The ID of the order.
+     */
+    void addToSalesRollups(Long orderId);
+
+    /**
+     * Takes the items of an order out of the daily, product and category sales, with a single statement.
+     *
+     * @param orderId The ID of the order.
+     */
+    void subtractFromSalesRollups(Long orderId);
+
+    /**
+     * Takes the items of the given orders out of the daily, product and category sales, with a single statement.
+     *
+     * @param orderIds The IDs of the orders.
+     */
+    void subtractFromSalesRollups(Collection<Long> orderIds);
+
+    /**
+     * Moves the given orders to a new status with a single statement, provided they are in one of the given
+     * current statuses when the statement runs.
+     *
+     * @param orderIds        The IDs of the orders to move.
+     * @param currentStatuses The statuses the orders can be moved from.
+     * @param status          The new status.
+     * @return The IDs of the orders moved, in no particular order.
+     */
+    List<Long> updateStatuses(Collection<Long> orderIds, Collection<Status> currentStatuses, Status status);
+
+    /**
+     * Stores the current price and category of their products on the order items placed before order items
+     * kept them, for the sales rollups to be computed from.
+     *
+     * @return The number of order items updated.
+     */
+    int snapshotLegacyOrderItems();
+
+    /**
+     * Recomputes the daily, product and category sales from all the orders that aren't cancelled.
+     * Checkouts and order changes wait until the rollups are rebuilt.
+     */
+    void rebuildSalesRollups();
+
+    /**
+     * The keyset position of an order.
+     */
+    record OrderKey(Long id, LocalDateTime orderDate) {
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Criteria and JDBC implementation of the custom order repository operations.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.OrderSummaryDto;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Status;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class OrderRepositoryCustomImpl implements OrderRepositoryCustom {
+    /**
+     * Upserts the sales of the order lines matching the %s condition, each multiplied by the sign parameter,
+     * in a single statement. Rows are upserted in key order, so that concurrent orders can't deadlock.
+     * Only the price and category stored on the order lines are read, so that a line is always taken out
+     * of the rollups it was added to, whatever happened to its product since.
+     */
+    private static final String UPSERT_SALES_ROLLUPS_SQL =
+            "WITH lines AS (" +
+            "    SELECT o.id AS order_id, o.order_date::date AS sales_date, o.id %% ? AS slot, i.product_id, " +
+            "           i.category, i.quantity, i.quantity * i.unit_price_cents AS amount_cents " +
+            "    FROM orders o " +
+            "    JOIN items i ON i.order_id = o.id " +
+            "    WHERE %s" +
+            "), " +
+            "days AS (" +
+            "    INSERT INTO daily_sales (sales_date, slot, order_count, units, revenue_cents) " +
+            "    SELECT sales_date, slot, ? * COUNT(DISTINCT order_id), ? * SUM(quantity), ? * SUM(amount_cents) " +
+            "    FROM lines " +
+            "    GROUP BY sales_date, slot ORDER BY sales_date, slot " +
+            "    ON CONFLICT (sales_date, slot) DO UPDATE " +
+            "    SET order_count = daily_sales.order_count + EXCLUDED.order_count, " +
+            "        units = daily_sales.units + EXCLUDED.units, " +
+            "        revenue_cents = daily_sales.revenue_cents + EXCLUDED.revenue_cents" +
+            "), " +
+            "categories AS (" +
+            "    INSERT INTO category_sales (category, slot, units, revenue_cents) " +
+            "    SELECT category, slot, ? * SUM(quantity), ? * SUM(amount_cents) " +
+            "    FROM lines " +
+            "    GROUP BY category, slot ORDER BY category, slot " +
+            "    ON CONFLICT (category, slot) DO UPDATE " +
+            "    SET units = category_sales.units + EXCLUDED.units, " +
+            "        revenue_cents = category_sales.revenue_cents + EXCLUDED.revenue_cents" +
+            ") " +
+            "INSERT INTO product_sales (product_id, units, revenue_cents) " +
+            "SELECT product_id, ? * SUM(quantity), ? * SUM(amount_cents) " +
+            "FROM lines " +
+            "GROUP BY product_id ORDER BY product_id " +
+            "ON CONFLICT (product_id) DO UPDATE " +
+            "SET units = product_sales.units + EXCLUDED.units, " +
+            "    revenue_cents = product_sales.revenue_cents + EXCLUDED.revenue_cents";
+
+    private static final String UPSERT_ORDER_SALES_SQL = String.format(UPSERT_SALES_ROLLUPS_SQL, "o.id = ANY (?)");
+
+    private static final String INSERT_ALL_SALES_SQL =
+            String.format(UPSERT_SALES_ROLLUPS_SQL, "o.status <> 'CANCELED'");
+
+    private static final String SNAPSHOT_LEGACY_ORDER_ITEMS_SQL =
+            "UPDATE items i " +
+            "SET category = COALESCE(i.category, p.category), " +
+            "    unit_price_cents = COALESCE(i.unit_price_cents, ROUND((p.price * 100)::NUMERIC)) " +
+            "FROM products p " +
+            "WHERE p.id = i.product_id AND i.order_id IS NOT NULL " +
+            "AND (i.category IS NULL OR i.unit_price_cents IS NULL)";
+
+    private static final String UPDATE_STATUSES_SQL =
+            "UPDATE orders SET status = ? WHERE id = ANY (?) AND status = ANY (?) RETURNING id";
+
+    private final EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${analytics.sales-rollup.slots:8}")
+    private int salesRollupSlots;
+
+    @Override
+    public List<OrderSummaryDto> findSummaries(Specification<Order> specification, Sort sort, Limit limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderSummaryDto> query = criteriaBuilder.createQuery(OrderSummaryDto.class);
+        Root<Order> order = query.from(Order.class);
+        // The user's ID is the foreign key column of the order, so reading it doesn't join the users.
+        query.select(criteriaBuilder.construct(OrderSummaryDto.class, order.get("id"), order.get("orderDate"),
+                                               order.get("totalAmount"), order.get("status"),
+                                               order.get("user")
+                                                    .get("id")));
+        return getResultList(query, order, specification, sort, limit);
+    }
+
+    @Override
+    public List<OrderKey> findKeys(Specification<Order> specification, Sort sort, Limit limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<OrderKey> query = criteriaBuilder.createQuery(OrderKey.class);
+        Root<Order> order = query.from(Order.class);
+        query.select(criteriaBuilder.construct(OrderKey.class, order.get("id"), order.get("orderDate")));
+        return getResultList(query, order, specification, sort, limit);
+    }
+
+    @Override
+    public void addToSalesRollups(Long orderId) {
+        upsertSalesRollups(UPSERT_ORDER_SALES_SQL, 1, (Object) new Long[]{orderId});
+    }
+
+    @Override
+    public void subtractFromSalesRollups(Long orderId) {
+        subtractFromSalesRollups(List.of(orderId));
+    }
+
+    @Override
+    public void subtractFromSalesRollups(Collection<Long> orderIds) {
+        upsertSalesRollups(UPSERT_ORDER_SALES_SQL, -1, (Object) orderIds.toArray(Long[]::new));
+    }
+
+    @Override
+    public List<Long> updateStatuses(Collection<Long> orderIds, Collection<Status> currentStatuses,
+                                     Status status) {
+        String[] statuses = currentStatuses.stream()
+                                           .map(Status::name)
+                                           .toArray(String[]::new);
+        return jdbcTemplate.queryForList(UPDATE_STATUSES_SQL, Long.class, status.name(),
+                                         orderIds.toArray(Long[]::new), statuses);
+    }
+
+    @Override
+    public int snapshotLegacyOrderItems() {
+        return jdbcTemplate.update(SNAPSHOT_LEGACY_ORDER_ITEMS_SQL);
+    }
+
+    @Override
+    public void rebuildSalesRollups() {
+        jdbcTemplate.execute("LOCK TABLE daily_sales, category_sales, product_sales IN EXCLUSIVE MODE");
+        snapshotLegacyOrderItems();
+        jdbcTemplate.update("DELETE FROM daily_sales");
+        jdbcTemplate.update("DELETE FROM category_sales");
+        jdbcTemplate.update("DELETE FROM product_sales");
+        upsertSalesRollups(INSERT_ALL_SALES_SQL, 1);
+    }
+
+    private void upsertSalesRollups(String sql, int sign, Object... conditionParameters) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(salesRollupSlots);
+        parameters.addAll(List.of(conditionParameters));
+        parameters.addAll(Collections.nCopies(7, sign));
+        jdbcTemplate.update(sql, parameters.toArray());
+    }
+
+    private <T> List<T> getResultList(CriteriaQuery<T> query, Root<Order> order,
+                                      Specification<Order> specification, Sort sort, Limit limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        Predicate predicate = specification.toPredicate(order, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, order, criteriaBuilder));
+        TypedQuery<T> typedQuery = entityManager.createQuery(query);
+        if (limit.isLimited()) {
+            typedQuery.setMaxResults(limit.max());
+        }
+        return typedQuery.getResultList();
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Composable query criteria for filtering and keyset-paginating orders by order date.
+ * Every factory returns null when there is nothing to filter on, which Specification composition ignores.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Status;
+import jakarta.persistence.criteria.Path;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+public final class OrderSpecifications {
+    /**
+     * The order the keyset follows, served by the (order_date, id) indexes of the orders table.
+     */
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Direction.DESC, "orderDate", "id");
+
+    public static final Sort OLDEST_FIRST = Sort.by(Sort.Direction.ASC, "orderDate", "id");
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> hasStatus(Status status) {
+        return status == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("status"), status);
+    }
+
+    public static Specification<Order> placedFrom(LocalDateTime from) {
+        return from == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("orderDate"),
+                                                                                       from);
+    }
+
+    public static Specification<Order> placedBefore(LocalDateTime to) {
+        return to == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.lessThan(root.get("orderDate"), to);
+    }
+
+    public static Specification<Order> hasUserId(Long userId) {
+        return userId == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("user")
+                                                                            .get("id"), userId);
+    }
+
+    /**
+     * Keeps the orders coming after the given row in newest first order. As for products, the redundant
+     * bound on the order date alone lets the (order_date, id) index seek straight to the row.
+     *
+     * @param orderDate The order date of the last row of the previous page.
+     * @param id        The ID of the last row of the previous page.
+     */
+    public static Specification<Order> placedBeforeKey(LocalDateTime orderDate, long id) {
+        return (root, query, criteriaBuilder) -> {
+            Path<LocalDateTime> path = root.get("orderDate");
+            return criteriaBuilder.and(
+                    criteriaBuilder.lessThanOrEqualTo(path, orderDate),
+                    criteriaBuilder.or(criteriaBuilder.lessThan(path, orderDate),
+                                       criteriaBuilder.lessThan(root.get("id"), id)));
+        };
+    }
+
+    /**
+     * Keeps the orders coming after the given row in oldest first order, the mirror of {@link #placedBeforeKey}.
+     *
+     * @param orderDate The order date of the last row of the previous batch.
+     * @param id        The ID of the last row of the previous batch.
+     */
+    public static Specification<Order> placedAfterKey(LocalDateTime orderDate, long id) {
+        return (root, query, criteriaBuilder) -> {
+            Path<LocalDateTime> path = root.get("orderDate");
+            return criteriaBuilder.and(
+                    criteriaBuilder.greaterThanOrEqualTo(path, orderDate),
+                    criteriaBuilder.or(criteriaBuilder.greaterThan(path, orderDate),
+                                       criteriaBuilder.greaterThan(root.get("id"), id)));
+        };
+    }
+}
@@ -6,21 +6,93 @@
  */
 package com.reuveny.Electronics.repository;
 
+import com.reuveny.Electronics.dto.CategoryFacetDto;
+import com.reuveny.Electronics.dto.ProductNameDto;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
 import com.reuveny.Electronics.model.Category;
 import com.reuveny.Electronics.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
-    List<Product> findByNameIgnoreCaseContaining(String name);
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
+    String SELECT_PRODUCT_SUMMARY = "SELECT new com.reuveny.Electronics.dto.ProductSummaryDto(p.id, p.name, " +
+                                    "p.price, p.imgUrl, p.stockQuantity, p.category) FROM Product p ";
 
-    List<Product> findProductsByCategory(Category category);
+    String NAME_CONTAINS = "LOWER(p.name) LIKE LOWER(CONCAT('%', :#{escape([0])}, '%')) " +
+                           "ESCAPE :#{escapeCharacter()} ";
+
+    @Query(SELECT_PRODUCT_SUMMARY)
+    List<ProductSummaryDto> findAllSummaries();
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE p.id IN :ids")
+    List<ProductSummaryDto> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE p.id > :after ORDER BY p.id")
+    List<ProductSummaryDto> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE " + NAME_CONTAINS)
+    List<ProductSummaryDto> findSummariesByNameContaining(String name, Limit limit);
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE " + NAME_CONTAINS + "AND p.id > :after ORDER BY p.id")
+    List<ProductSummaryDto> findSummariesByNameContainingAfter(
+            String name,
+            @Param("after") Long after,
+            Limit limit
+    );
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE p.category = :category")
+    List<ProductSummaryDto> findSummariesByCategory(@Param("category") Category category);
+
+    @Query(SELECT_PRODUCT_SUMMARY + "WHERE p.category = :category AND p.id > :after ORDER BY p.id")
+    List<ProductSummaryDto> findSummariesByCategoryAfter(
+            @Param("category") Category category,
+            @Param("after") Long after,
+            Limit limit
+    );
+
+    @Query("SELECT new com.reuveny.Electronics.dto.ProductNameDto(p.id, p.name) FROM Product p " +
+           "WHERE p.id > :after ORDER BY p.id")
+    List<ProductNameDto> findNamesAfter(@Param("after") Long after, Limit limit);
+
+    /**
+     * Forward-only cursor over every product. Must be consumed inside a transaction, so the
+     * driver fetches the rows in batches of the fetch size instead of all at once.
+     */
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    @QueryHints({
+            @QueryHint(
+                    name = HibernateHints.HINT_FETCH_SIZE,
+                    value = "500"
+            ),
+            @QueryHint(
+                    name = HibernateHints.HINT_READ_ONLY,
+                    value = "true"
+            )
+    })
+    Stream<Product> streamAllByOrderById();
+
+    @Query("SELECT new com.reuveny.Electronics.dto.CategoryFacetDto(p.category, COUNT(p), " +
+           "SUM(CASE WHEN p.stockQuantity > 0 THEN 1L ELSE 0L END), MIN(p.price), MAX(p.price)) " +
+           "FROM Product p GROUP BY p.category")
+    List<CategoryFacetDto> aggregateByCategory();
+
+    @Query("SELECT MIN(p.price) FROM Product p WHERE p.category = :category")
+    Double findMinPriceByCategory(@Param("category") Category category);
+
+    @Query("SELECT MAX(p.price) FROM Product p WHERE p.category = :category")
+    Double findMaxPriceByCategory(@Param("category") Category category);
 
     @Query(
             value = "DELETE FROM wishlists_products wp WHERE product_id IN (:productIds)",
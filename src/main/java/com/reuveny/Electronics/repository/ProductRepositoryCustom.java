@@ -0,0 +1,112 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Product persistence operations implemented with plain JDBC, for bulk work JPA can't batch.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.ProductBulkUpdateDto;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.model.Product;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface ProductRepositoryCustom {
+    /**
+     * Outcome of one entry of a bulk update. before is null when the product doesn't exist,
+     * and after is null when the update was skipped because it would make the price or stock negative.
+     */
+    record PriceStockUpdate(Long productId, ProductSnapshot before, ProductSnapshot after) {
+    }
+
+    /**
+     * Inserts the given products with a single JDBC batch in one transaction,
+     * and assigns them the IDs generated by the database.
+     *
+     * @param products The new products.
+     */
+    void insertAll(List<Product> products);
+
+    /**
+     * Applies the given price and stock changes with a single set-based statement.
+     * The affected rows are locked and the new values computed from the current ones, and rows
+     * whose price or stock would become negative are left unchanged. Updated rows get a new version.
+     *
+     * @param updates The changes to apply, at most one per product ID.
+     * @return The outcome of every update, in no particular order.
+     */
+    List<PriceStockUpdate> updatePricesAndStock(List<ProductBulkUpdateDto> updates);
+
+    /**
+     * Atomically takes the given quantity out of a product's stock, only if enough is left,
+     * so concurrent reservations can't oversell. A negative quantity puts stock back.
+     * The managed entity, if any, isn't updated.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to reserve.
+     * @return The product after the reservation, or empty if it doesn't exist or hasn't enough stock.
+     */
+    Optional<ProductSnapshot> reserveStock(Long productId, int quantity);
+
+    /**
+     * Atomically takes the given quantities out of several products' stock with a single statement,
+     * only if every product exists and has enough stock left; otherwise no stock is taken.
+     * The products are locked in ID order. Negative quantities put stock back.
+     *
+     * @param quantities The quantity to reserve per product ID.
+     * @return The outcome per product, in no particular order: before is null when the product doesn't exist,
+     * and after is null when nothing was reserved.
+     */
+    List<PriceStockUpdate> reserveStock(Map<Long, Integer> quantities);
+
+    /**
+     * Atomically puts the given quantities back into several products' stock with a single statement.
+     * The products are locked in ID order, and products that no longer exist are skipped.
+     *
+     * @param quantities The quantity to release per product ID.
+     * @return The stock change of every updated product, in no particular order.
+     */
+    List<PriceStockUpdate> releaseStock(Map<Long, Integer> quantities);
+
+    /**
+     * Retrieves the stock of a product including the changes still in the stock journal.
+     *
+     * @param productId The ID of the product.
+     * @return The available stock, or empty if the product doesn't exist.
+     */
+    Optional<Integer> findAvailableStock(Long productId);
+
+    /**
+     * Appends stock changes to the stock journal with a single statement, within the current transaction if any.
+     *
+     * @param deltas The change of the stock quantity per product ID.
+     */
+    void appendStockJournal(Map<Long, Integer> deltas);
+
+    /**
+     * Moves the committed stock journal entries into the products' stock with a single statement:
+     * the entries are deleted and their net change per product is added to it.
+     * Entries of products that no longer exist are dropped.
+     *
+     * @return The stock change of every updated product, in no particular order.
+     */
+    List<PriceStockUpdate> flushStockJournal();
+
+    /**
+     * Retrieves the summaries of the products matching the given criteria, selecting only
+     * the summary columns.
+     *
+     * @param specification The criteria the products have to match.
+     * @param sort          The order of the results.
+     * @param limit         The maximum number of results.
+     * @return The matching product summaries, in the given order.
+     */
+    List<ProductSummaryDto> findSummaries(Specification<Product> specification, Sort sort, Limit limit);
+}
@@ -0,0 +1,320 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * JDBC implementation of the custom product repository operations.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.ProductBulkUpdateDto;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class ProductRepositoryCustomImpl implements ProductRepositoryCustom {
+    private static final String INSERT_PRODUCT_SQL =
+            "INSERT INTO products (name, description, price, img_url, stock_quantity, category, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String UPDATE_PRICES_AND_STOCK_SQL =
+            "WITH requested (id, price, price_delta, stock_quantity, stock_quantity_delta) AS (VALUES %s), " +
+            "current AS (" +
+            "    SELECT p.id, p.name, p.category, p.price, p.stock_quantity, " +
+            "           COALESCE(r.price, p.price + COALESCE(r.price_delta, 0)) AS new_price, " +
+            "           COALESCE(r.stock_quantity, " +
+            "                    p.stock_quantity + COALESCE(r.stock_quantity_delta, 0)) AS new_stock_quantity " +
+            "    FROM products p JOIN requested r ON r.id = p.id " +
+            "    FOR UPDATE OF p" +
+            "), " +
+            "updated AS (" +
+            "    UPDATE products p " +
+            "    SET price = c.new_price, stock_quantity = c.new_stock_quantity, version = p.version + 1 " +
+            "    FROM current c " +
+            "    WHERE p.id = c.id AND c.new_price >= 0 AND c.new_stock_quantity >= 0 " +
+            "    RETURNING p.id" +
+            ") " +
+            "SELECT r.id, c.name, c.category, c.price, c.stock_quantity, c.new_price, c.new_stock_quantity, " +
+            "       u.id IS NOT NULL AS updated " +
+            "FROM requested r " +
+            "LEFT JOIN current c ON c.id = r.id " +
+            "LEFT JOIN updated u ON u.id = r.id";
+
+    private static final String RESERVE_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ?, version = version + 1 " +
+            "WHERE id = ? AND stock_quantity >= ? " +
+            "RETURNING name, category, price, stock_quantity";
+
+    private static final String RESERVE_STOCK_BATCH_SQL =
+            "WITH requested (id, quantity) AS (VALUES %s), " +
+            "locked AS (" +
+            "    SELECT p.id, p.name, p.category, p.price, p.stock_quantity " +
+            "    FROM products p JOIN requested r ON r.id = p.id " +
+            "    ORDER BY p.id " +
+            "    FOR UPDATE OF p" +
+            "), " +
+            "short AS (" +
+            "    SELECT r.id FROM requested r LEFT JOIN locked l ON l.id = r.id " +
+            "    WHERE l.id IS NULL OR l.stock_quantity < r.quantity" +
+            "), " +
+            "updated AS (" +
+            "    UPDATE products p " +
+            "    SET stock_quantity = p.stock_quantity - r.quantity, version = p.version + 1 " +
+            "    FROM requested r " +
+            "    WHERE p.id = r.id AND NOT EXISTS (SELECT 1 FROM short) " +
+            "    RETURNING p.id, p.stock_quantity" +
+            ") " +
+            "SELECT r.id, l.name, l.category, l.price, l.stock_quantity, u.stock_quantity AS new_stock_quantity " +
+            "FROM requested r " +
+            "LEFT JOIN locked l ON l.id = r.id " +
+            "LEFT JOIN updated u ON u.id = r.id";
+
+    private static final String RELEASE_STOCK_BATCH_SQL =
+            "WITH released (id, quantity) AS (VALUES %s), " +
+            "locked AS (" +
+            "    SELECT p.id FROM products p JOIN released r ON r.id = p.id " +
+            "    ORDER BY p.id " +
+            "    FOR UPDATE OF p" +
+            ") " +
+            "UPDATE products p " +
+            "SET stock_quantity = p.stock_quantity + r.quantity, version = p.version + 1 " +
+            "FROM released r JOIN locked l ON l.id = r.id " +
+            "WHERE p.id = r.id " +
+            "RETURNING p.id, p.name, p.category, p.price, p.stock_quantity, r.quantity";
+
+    private static final String RESERVED_ROW = "(?::bigint, ?::integer)";
+
+    private static final String FIND_AVAILABLE_STOCK_SQL =
+            "SELECT p.stock_quantity + " +
+            "       COALESCE((SELECT SUM(j.delta) FROM stock_journal j WHERE j.product_id = p.id), 0) " +
+            "FROM products p WHERE p.id = ?";
+
+    private static final String APPEND_STOCK_JOURNAL_SQL = "INSERT INTO stock_journal (product_id, delta) VALUES %s";
+
+    private static final String FLUSH_STOCK_JOURNAL_SQL =
+            "WITH flushed AS (DELETE FROM stock_journal RETURNING product_id, delta), " +
+            "deltas AS (SELECT product_id, SUM(delta) AS delta FROM flushed GROUP BY product_id) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity + d.delta, version = p.version + 1 " +
+            "FROM deltas d " +
+            "WHERE p.id = d.product_id AND d.delta <> 0 " +
+            "RETURNING p.id, p.name, p.category, p.price, p.stock_quantity, d.delta";
+
+    private static final String REQUESTED_ROW = "(?::bigint, ?::float8, ?::float8, ?::integer, ?::integer)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public void insertAll(List<Product> products) {
+        if (products.isEmpty()) {
+            return;
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_PRODUCT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement statement, int i) throws SQLException {
+                        Product product = products.get(i);
+                        statement.setString(1, product.getName());
+                        statement.setString(2, product.getDescription());
+                        statement.setDouble(3, product.getPrice());
+                        statement.setString(4, product.getImgUrl());
+                        statement.setInt(5, product.getStockQuantity());
+                        statement.setString(6, product.getCategory()
+                                                      .name());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return products.size();
+                    }
+                },
+                keyHolder
+        );
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            product.setId(((Number) keys.get(i)
+                                        .get("id")).longValue());
+            product.setVersion(0L);
+        }
+    }
+
+    @Override
+    public List<PriceStockUpdate> updatePricesAndStock(List<ProductBulkUpdateDto> updates) {
+        if (updates.isEmpty()) {
+            return List.of();
+        }
+        String sql = String.format(UPDATE_PRICES_AND_STOCK_SQL,
+                                   String.join(", ", Collections.nCopies(updates.size(), REQUESTED_ROW)));
+        List<Object> parameters = new ArrayList<>(updates.size() * 5);
+        for (ProductBulkUpdateDto update : updates) {
+            parameters.add(update.getProductId());
+            parameters.add(update.getPrice());
+            parameters.add(update.getPriceDelta());
+            parameters.add(update.getStockQuantity());
+            parameters.add(update.getStockQuantityDelta());
+        }
+        return jdbcTemplate.query(sql, (resultSet, rowNum) -> {
+            long productId = resultSet.getLong("id");
+            String name = resultSet.getString("name");
+            if (name == null) {
+                return new PriceStockUpdate(productId, null, null);
+            }
+            Category category = Category.valueOf(resultSet.getString("category"));
+            ProductSnapshot before = new ProductSnapshot(name, category, resultSet.getDouble("price"),
+                                                         resultSet.getInt("stock_quantity"));
+            ProductSnapshot after = resultSet.getBoolean("updated") ?
+                    new ProductSnapshot(name, category, resultSet.getDouble("new_price"),
+                                        resultSet.getInt("new_stock_quantity")) : null;
+            return new PriceStockUpdate(productId, before, after);
+        }, parameters.toArray());
+    }
+
+    @Override
+    public Optional<ProductSnapshot> reserveStock(Long productId, int quantity) {
+        List<ProductSnapshot> after = jdbcTemplate.query(
+                RESERVE_STOCK_SQL,
+                (resultSet, rowNum) -> new ProductSnapshot(resultSet.getString("name"),
+                                                           Category.valueOf(resultSet.getString("category")),
+                                                           resultSet.getDouble("price"),
+                                                           resultSet.getInt("stock_quantity")),
+                quantity, productId, quantity
+        );
+        return after.stream()
+                    .findFirst();
+    }
+
+    @Override
+    public List<PriceStockUpdate> reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        String sql = String.format(RESERVE_STOCK_BATCH_SQL,
+                                   String.join(", ", Collections.nCopies(quantities.size(), RESERVED_ROW)));
+        List<Object> parameters = new ArrayList<>(quantities.size() * 2);
+        quantities.forEach((productId, quantity) -> {
+            parameters.add(productId);
+            parameters.add(quantity);
+        });
+        return jdbcTemplate.query(sql, (resultSet, rowNum) -> {
+            long productId = resultSet.getLong("id");
+            String name = resultSet.getString("name");
+            if (name == null) {
+                return new PriceStockUpdate(productId, null, null);
+            }
+            ProductSnapshot before = new ProductSnapshot(name, Category.valueOf(resultSet.getString("category")),
+                                                         resultSet.getDouble("price"),
+                                                         resultSet.getInt("stock_quantity"));
+            int newStockQuantity = resultSet.getInt("new_stock_quantity");
+            ProductSnapshot after = resultSet.wasNull() ? null : before.withStockQuantity(newStockQuantity);
+            return new PriceStockUpdate(productId, before, after);
+        }, parameters.toArray());
+    }
+
+    @Override
+    public List<PriceStockUpdate> releaseStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        String sql = String.format(RELEASE_STOCK_BATCH_SQL,
+                                   String.join(", ", Collections.nCopies(quantities.size(), RESERVED_ROW)));
+        List<Object> parameters = new ArrayList<>(quantities.size() * 2);
+        quantities.forEach((productId, quantity) -> {
+            parameters.add(productId);
+            parameters.add(quantity);
+        });
+        return jdbcTemplate.query(sql, (resultSet, rowNum) -> {
+            ProductSnapshot after = new ProductSnapshot(resultSet.getString("name"),
+                                                        Category.valueOf(resultSet.getString("category")),
+                                                        resultSet.getDouble("price"),
+                                                        resultSet.getInt("stock_quantity"));
+            return new PriceStockUpdate(resultSet.getLong("id"), after.withStockQuantity(
+                    after.getStockQuantity() - resultSet.getInt("quantity")), after);
+        }, parameters.toArray());
+    }
+
+    @Override
+    public Optional<Integer> findAvailableStock(Long productId) {
+        return jdbcTemplate.queryForList(FIND_AVAILABLE_STOCK_SQL, Integer.class, productId)
+                           .stream()
+                           .findFirst();
+    }
+
+    @Override
+    public void appendStockJournal(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        String sql = String.format(APPEND_STOCK_JOURNAL_SQL,
+                                   String.join(", ", Collections.nCopies(deltas.size(), RESERVED_ROW)));
+        List<Object> parameters = new ArrayList<>(deltas.size() * 2);
+        deltas.forEach((productId, delta) -> {
+            parameters.add(productId);
+            parameters.add(delta);
+        });
+        jdbcTemplate.update(sql, parameters.toArray());
+    }
+
+    @Override
+    public List<PriceStockUpdate> flushStockJournal() {
+        return jdbcTemplate.query(FLUSH_STOCK_JOURNAL_SQL, (resultSet, rowNum) -> {
+            ProductSnapshot after = new ProductSnapshot(resultSet.getString("name"),
+                                                        Category.valueOf(resultSet.getString("category")),
+                                                        resultSet.getDouble("price"),
+                                                        resultSet.getInt("stock_quantity"));
+            return new PriceStockUpdate(resultSet.getLong("id"), after.withStockQuantity(
+                    after.getStockQuantity() - resultSet.getInt("delta")), after);
+        });
+    }
+
+    @Override
+    public List<ProductSummaryDto> findSummaries(Specification<Product> specification, Sort sort,
+                                                 Limit limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductSummaryDto> query = criteriaBuilder.createQuery(ProductSummaryDto.class);
+        Root<Product> product = query.from(Product.class);
+        query.select(criteriaBuilder.construct(ProductSummaryDto.class, product.get("id"),
+                                               product.get("name"), product.get("price"),
+                                               product.get("imgUrl"), product.get("stockQuantity"),
+                                               product.get("category")));
+        Predicate predicate = specification.toPredicate(product, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, product, criteriaBuilder));
+        TypedQuery<ProductSummaryDto> typedQuery = entityManager.createQuery(query);
+        if (limit.isLimited()) {
+            typedQuery.setMaxResults(limit.max());
+        }
+        return typedQuery.getResultList();
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Reads the product sales rollup.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.ProductSalesDto;
+import com.reuveny.Electronics.model.ProductSales;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProductSalesRepository extends JpaRepository<ProductSales, Long> {
+    @Query("SELECT new com.reuveny.Electronics.dto.ProductSalesDto(s.productId, p.name, s.units, " +
+           "s.revenueCents / 100.0) FROM ProductSales s LEFT JOIN Product p ON p.id = s.productId " +
+           "WHERE s.units > 0 ORDER BY s.units DESC, s.productId")
+    List<ProductSalesDto> findTopSellers(Limit limit);
+}
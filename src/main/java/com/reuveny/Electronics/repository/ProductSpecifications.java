@@ -0,0 +1,89 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Composable query criteria for filtering and keyset-paginating products.
+ * Every factory returns null when there is nothing to filter on, which Specification composition ignores.
+ */
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+public final class ProductSpecifications {
+    private ProductSpecifications() {
+    }
+
+    public static Specification<Product> hasCategory(Category category) {
+        return category == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("category"), category);
+    }
+
+    public static Specification<Product> priceAtLeast(Double minPrice) {
+        return minPrice == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.greaterThanOrEqualTo(root.get("price"),
+                                                                                       minPrice);
+    }
+
+    public static Specification<Product> priceAtMost(Double maxPrice) {
+        return maxPrice == null ? null :
+                (root, query, criteriaBuilder) -> criteriaBuilder.lessThanOrEqualTo(root.get("price"),
+                                                                                    maxPrice);
+    }
+
+    public static Specification<Product> inStock(Boolean inStock) {
+        if (inStock == null) {
+            return null;
+        }
+        return (root, query, criteriaBuilder) -> inStock ?
+                criteriaBuilder.greaterThan(root.get("stockQuantity"), 0) :
+                criteriaBuilder.equal(root.get("stockQuantity"), 0);
+    }
+
+    /**
+     * Keeps the products coming after the given row in ID order.
+     *
+     * @param direction The direction the IDs are sorted in.
+     * @param id        The ID of the last row of the previous page.
+     */
+    public static Specification<Product> idAfter(Sort.Direction direction, long id) {
+        return (root, query, criteriaBuilder) -> direction.isAscending() ?
+                criteriaBuilder.greaterThan(root.get("id"), id) :
+                criteriaBuilder.lessThan(root.get("id"), id);
+    }
+
+    /**
+     * Keeps the products coming after the given row in (property, ID) order. The redundant bound on
+     * the property alone is what lets an index on (property, id) seek straight to the row instead of
+     * scanning from the start; the rest only drops the rows sharing its value that were already returned.
+     *
+     * @param property  The sorted property.
+     * @param direction The direction both the property and the IDs are sorted in.
+     * @param value     The property value of the last row of the previous page.
+     * @param id        The ID of the last row of the previous page.
+     */
+    public static <T extends Comparable<? super T>> Specification<Product> keyAfter(
+            String property,
+            Sort.Direction direction,
+            T value,
+            long id
+    ) {
+        return (root, query, criteriaBuilder) -> {
+            Path<T> path = root.get(property);
+            Predicate reachesValue = direction.isAscending() ?
+                    criteriaBuilder.greaterThanOrEqualTo(path, value) :
+                    criteriaBuilder.lessThanOrEqualTo(path, value);
+            Predicate beyondValue = direction.isAscending() ?
+                    criteriaBuilder.greaterThan(path, value) :
+                    criteriaBuilder.lessThan(path, value);
+            return criteriaBuilder.and(
+                    reachesValue,
+                    criteriaBuilder.or(beyondValue,
+                                       idAfter(direction, id).toPredicate(root, query, criteriaBuilder)));
+        };
+    }
+}
@@ -8,9 +8,35 @@ package com.reuveny.Electronics.repository;
 
 import com.reuveny.Electronics.model.ShoppingCart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface ShoppingCartRepository extends JpaRepository<ShoppingCart, Long> {
     ShoppingCart findCartByUserId(Long userId);
+
+    /**
+     * Prices the items of carts saved before totals were kept in cents at their products' current prices.
+     *
+     * @return The number of items priced.
+     */
+    @Modifying
+    @Query(value = "UPDATE items i SET unit_price_cents = ROUND((p.price * 100)::NUMERIC) " +
+                   "FROM products p, shopping_carts c " +
+                   "WHERE p.id = i.product_id AND c.id = i.shopping_cart_id AND c.total_amount_cents IS NULL",
+           nativeQuery = true)
+    int priceLegacyCartItems();
+
+    /**
+     * Totals the carts saved before totals were kept in cents from their already priced items.
+     *
+     * @return The number of carts totaled.
+     */
+    @Modifying
+    @Query(value = "UPDATE shopping_carts c SET version = c.version + 1, total_amount_cents = COALESCE(" +
+                   "(SELECT SUM(i.quantity * i.unit_price_cents) FROM items i WHERE i.shopping_cart_id = c.id), 0) " +
+                   "WHERE c.total_amount_cents IS NULL",
+           nativeQuery = true)
+    int totalLegacyCarts();
 }
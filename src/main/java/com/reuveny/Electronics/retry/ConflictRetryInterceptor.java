@@ -0,0 +1,116 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Runs @RetryOnConflict methods again on optimistic locking conflicts, up to a number of attempts,
+ * waiting an exponentially growing and jittered backoff in between so that the conflicting calls
+ * don't collide again. Every conflict is counted per operation and entity type in the
+ * optimistic.lock.conflicts metric, and every retry in optimistic.lock.retries. The ID of the conflicting
+ * entity is only logged at debug level, as a tag per ID would create a meter per product or cart.
+ */
+package com.reuveny.Electronics.retry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Slf4j
+public class ConflictRetryInterceptor implements MethodInterceptor {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final int maxAttempts;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    public ConflictRetryInterceptor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            int maxAttempts,
+            Duration initialBackoff,
+            Duration maxBackoff
+    ) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts has to be at least 1.");
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        // A joined transaction is rolled back by the conflict anyway, so only its owner can retry.
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed();
+        }
+        Method method = invocation.getMethod();
+        String operation = method.getDeclaringClass()
+                                 .getSimpleName() + "." + method.getName();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return ((ProxyMethodInvocation) invocation).invocableClone()
+                                                           .proceed();
+            } catch (OptimisticLockingFailureException ex) {
+                countConflict(operation, ex);
+                if (attempt >= maxAttempts) {
+                    throw ex;
+                }
+                countRetry(operation);
+                try {
+                    Thread.sleep(getBackoffMillis(attempt));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread()
+                          .interrupt();
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Half of the exponential backoff of the attempt plus a random part of the other half.
+     */
+    private long getBackoffMillis(int attempt) {
+        long backoffMillis = Math.min(maxBackoff.toMillis(),
+                                      initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long half = backoffMillis / 2;
+        return half + ThreadLocalRandom.current()
+                                       .nextLong(backoffMillis - half + 1);
+    }
+
+    private void countConflict(String operation, OptimisticLockingFailureException ex) {
+        String entity = "unknown";
+        String id = "unknown";
+        if (ex instanceof ObjectOptimisticLockingFailureException objectEx) {
+            entity = ClassUtils.getShortName(objectEx.getPersistentClassName());
+            id = String.valueOf(objectEx.getIdentifier());
+        }
+        log.debug("Optimistic locking conflict in {} on {} {}", operation, entity, id);
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("optimistic.lock.conflicts", "operation", operation, "entity", entity)
+                    .increment();
+        }
+    }
+
+    private void countRetry(String operation) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("optimistic.lock.retries", "operation", operation)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Marks a transactional service method to be run again, in a new transaction, when it fails on an
+ * optimistic locking conflict. Only the outermost call retries; calls that join a running transaction
+ * leave it to their caller.
+ */
+package com.reuveny.Electronics.retry;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnConflict {
+}
@@ -0,0 +1,84 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Gives the stock of abandoned carts back: cart lines whose reservation is older than the TTL are deleted
+ * and their stock released, in bounded batches of set-based statements that never load carts or items.
+ * The released units are counted by the cart.reservations.released metric.
+ */
+package com.reuveny.Electronics.scheduler;
+
+import com.reuveny.Electronics.repository.ItemRepository;
+import com.reuveny.Electronics.service.InventoryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Component
+public class CartReservationSweeper {
+    private final ItemRepository itemRepository;
+
+    private final InventoryService inventoryService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Duration ttl;
+
+    private final int batchSize;
+
+    private final Counter releasedUnits;
+
+    public CartReservationSweeper(
+            ItemRepository itemRepository,
+            InventoryService inventoryService,
+            PlatformTransactionManager transactionManager,
+            @Value("${cart.reservation.ttl:30m}") Duration ttl,
+            @Value("${cart.reservation.sweep-batch-size:1000}") int batchSize,
+            MeterRegistry meterRegistry
+    ) {
+        this.itemRepository = itemRepository;
+        this.inventoryService = inventoryService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.ttl = ttl;
+        this.batchSize = batchSize;
+        this.releasedUnits = Counter.builder("cart.reservations.released")
+                                    .baseUnit("units")
+                                    .description("Units of stock released from expired cart reservations")
+                                    .register(meterRegistry);
+    }
+
+    /**
+     * Releases the reservations expired by now, one batch per transaction, until none is left.
+     *
+     * @return The number of released units.
+     */
+    @Scheduled(fixedDelayString = "${cart.reservation.sweep-interval:1m}")
+    public long sweep() {
+        LocalDateTime reservedBefore = LocalDateTime.now()
+                                                    .minus(ttl);
+        long released = 0;
+        Map<Long, Integer> batch;
+        do {
+            batch = transactionTemplate.execute(status -> {
+                Map<Long, Integer> quantities = itemRepository.deleteExpiredCartItems(reservedBefore, batchSize);
+                inventoryService.releaseStock(quantities);
+                return quantities;
+            });
+            long units = batch.values()
+                              .stream()
+                              .mapToLong(Integer::longValue)
+                              .sum();
+            releasedUnits.increment(units);
+            released += units;
+        } while (!batch.isEmpty());
+        return released;
+    }
+}
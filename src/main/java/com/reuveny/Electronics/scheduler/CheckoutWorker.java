@@ -0,0 +1,89 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Drains the checkout outbox of the asynchronous checkout mode: claims pending checkouts in batches
+ * and places their orders on a fixed pool of worker threads, off the request threads.
+ */
+package com.reuveny.Electronics.scheduler;
+
+import com.reuveny.Electronics.service.CheckoutQueueService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Component
+@ConditionalOnProperty(
+        name = "checkout.mode",
+        havingValue = "async"
+)
+public class CheckoutWorker {
+    private final CheckoutQueueService checkoutQueueService;
+
+    private final ExecutorService workers;
+
+    private final int batchSize;
+
+    public CheckoutWorker(
+            CheckoutQueueService checkoutQueueService,
+            @Value("${checkout.async.workers:8}") int workerCount,
+            @Value("${checkout.async.batch-size:50}") int batchSize
+    ) {
+        this.checkoutQueueService = checkoutQueueService;
+        this.workers = Executors.newFixedThreadPool(workerCount, new CustomizableThreadFactory("checkout-worker-"));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Processes batches of checkouts until the outbox has no more pending ones.
+     *
+     * @return The number of processed checkouts.
+     */
+    @Scheduled(fixedDelayString = "${checkout.async.poll-interval:200ms}")
+    public int drain() throws InterruptedException {
+        int processed = 0;
+        List<Long> batch;
+        do {
+            batch = checkoutQueueService.claimCheckoutRequests(batchSize);
+            List<Future<?>> checkouts = new ArrayList<>(batch.size());
+            for (Long checkoutRequestId : batch) {
+                checkouts.add(workers.submit(() -> process(checkoutRequestId)));
+            }
+            for (Future<?> checkout : checkouts) {
+                try {
+                    checkout.get();
+                } catch (ExecutionException ex) {
+                    // process() handles its failures, an error is left for the claim timeout.
+                }
+            }
+            processed += batch.size();
+        } while (batch.size() == batchSize);
+        return processed;
+    }
+
+    private void process(Long checkoutRequestId) {
+        try {
+            checkoutQueueService.processCheckoutRequest(checkoutRequestId);
+        } catch (OptimisticLockingFailureException ex) {
+            // Still contended after the retries: claimed again once the claim times out.
+        } catch (RuntimeException ex) {
+            checkoutQueueService.failCheckoutRequest(checkoutRequestId, ex.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Deletes the checkout idempotency keys older than their TTL, so that the table stays bounded.
+ * A key can be replayed until it's deleted, that is for at most one purge interval past its TTL.
+ */
+package com.reuveny.Electronics.scheduler;
+
+import com.reuveny.Electronics.repository.CheckoutIdempotencyKeyRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Component
+public class IdempotencyKeySweeper {
+    private final CheckoutIdempotencyKeyRepository checkoutIdempotencyKeyRepository;
+
+    private final Duration ttl;
+
+    public IdempotencyKeySweeper(
+            CheckoutIdempotencyKeyRepository checkoutIdempotencyKeyRepository,
+            @Value("${checkout.idempotency.ttl:24h}") Duration ttl
+    ) {
+        this.checkoutIdempotencyKeyRepository = checkoutIdempotencyKeyRepository;
+        this.ttl = ttl;
+    }
+
+    /**
+     * @return The number of deleted keys.
+     */
+    @Scheduled(fixedDelayString = "${checkout.idempotency.purge-interval:10m}")
+    @Transactional
+    public int purge() {
+        return checkoutIdempotencyKeyRepository.deleteByCreatedAtBefore(LocalDateTime.now()
+                                                                                     .minus(ttl));
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Per-category product count, in-stock count and price range, kept in memory and updated
+ * incrementally from the committed product changes.
+ * When the cheapest or most expensive product of a category leaves it, only that category's
+ * price range is re-read on the next request, with an indexed MIN/MAX query.
+ * The aggregates are re-read every reconcile interval, which corrects whatever the incremental updates
+ * missed, e.g. changes of another application instance or made directly in the database.
+ */
+package com.reuveny.Electronics.search;
+
+import com.reuveny.Electronics.dto.CategoryFacetDto;
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@Component
+@RequiredArgsConstructor
+public class CategoryFacetIndex {
+    private final ProductRepository productRepository;
+
+    private final Map<Category, Facet> facets = new EnumMap<>(Category.class);
+
+    private volatile boolean ready;
+
+    private long changeCount;
+
+    /**
+     * Loads the aggregates with a single grouped query, retrying if products change meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        boolean loaded;
+        do {
+            loaded = reload();
+        } while (!loaded);
+    }
+
+    /**
+     * Replaces the aggregates with freshly read ones, unless products change meanwhile,
+     * in which case the next interval tries again.
+     */
+    @Scheduled(
+            fixedDelayString = "${product.facets.reconcile-interval:10m}",
+            initialDelayString = "${product.facets.reconcile-interval:10m}"
+    )
+    public void reconcile() {
+        if (ready) {
+            reload();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        changeCount++;
+        if (!ready) {
+            return;
+        }
+        for (ProductChange change : event.getChanges()) {
+            apply(change.getBefore(), change.getAfter());
+        }
+    }
+
+    /**
+     * @return The facets of every category, including empty ones, in declaration order.
+     */
+    public List<CategoryFacetDto> getFacets() {
+        if (!ready) {
+            return withEmptyCategories(productRepository.aggregateByCategory());
+        }
+        refreshStalePriceRanges();
+        synchronized (this) {
+            List<CategoryFacetDto> result = new ArrayList<>();
+            facets.forEach((category, facet) -> result.add(
+                    new CategoryFacetDto(category, facet.productCount, facet.inStockCount,
+                                         facet.minPrice, facet.maxPrice)));
+            return result;
+        }
+    }
+
+    private boolean reload() {
+        long changeCountBefore;
+        synchronized (this) {
+            changeCountBefore = changeCount;
+        }
+        List<CategoryFacetDto> rows = productRepository.aggregateByCategory();
+        return load(rows, changeCountBefore);
+    }
+
+    private synchronized boolean load(List<CategoryFacetDto> rows, long changeCountBefore) {
+        if (changeCount != changeCountBefore) {
+            return false;
+        }
+        for (CategoryFacetDto row : withEmptyCategories(rows)) {
+            Facet facet = new Facet();
+            facet.productCount = row.getProductCount();
+            facet.inStockCount = row.getInStockCount();
+            facet.minPrice = row.getMinPrice();
+            facet.maxPrice = row.getMaxPrice();
+            Facet previous = facets.put(row.getCategory(), facet);
+            if (previous != null) {
+                // Price ranges read before the replacement mustn't be applied to it.
+                facet.modifications = previous.modifications + 1;
+            }
+        }
+        ready = true;
+        return true;
+    }
+
+    private void apply(ProductSnapshot before, ProductSnapshot after) {
+        if (before != null && after != null && before.getCategory() == after.getCategory() &&
+            Objects.equals(before.getPrice(), after.getPrice())) {
+            Facet facet = facets.get(after.getCategory());
+            facet.inStockCount += inStock(after) - inStock(before);
+            return;
+        }
+        if (before != null) {
+            Facet facet = facets.get(before.getCategory());
+            facet.modifications++;
+            facet.productCount--;
+            facet.inStockCount -= inStock(before);
+            if (facet.productCount == 0) {
+                facet.minPrice = null;
+                facet.maxPrice = null;
+                facet.priceRangeStale = false;
+            } else if (before.getPrice()
+                             .equals(facet.minPrice) || before.getPrice()
+                                                              .equals(facet.maxPrice)) {
+                facet.priceRangeStale = true;
+            }
+        }
+        if (after != null) {
+            Facet facet = facets.get(after.getCategory());
+            facet.modifications++;
+            facet.productCount++;
+            facet.inStockCount += inStock(after);
+            if (facet.minPrice == null || after.getPrice() < facet.minPrice) {
+                facet.minPrice = after.getPrice();
+            }
+            if (facet.maxPrice == null || after.getPrice() > facet.maxPrice) {
+                facet.maxPrice = after.getPrice();
+            }
+        }
+    }
+
+    private void refreshStalePriceRanges() {
+        for (Category category : Category.values()) {
+            long modifications;
+            synchronized (this) {
+                Facet facet = facets.get(category);
+                if (!facet.priceRangeStale) {
+                    continue;
+                }
+                modifications = facet.modifications;
+            }
+            Double minPrice = productRepository.findMinPriceByCategory(category);
+            Double maxPrice = productRepository.findMaxPriceByCategory(category);
+            synchronized (this) {
+                Facet facet = facets.get(category);
+                // A change applied during the queries leaves the range stale for the next request.
+                if (facet.modifications == modifications) {
+                    facet.minPrice = minPrice;
+                    facet.maxPrice = maxPrice;
+                    facet.priceRangeStale = false;
+                }
+            }
+        }
+    }
+
+    private static List<CategoryFacetDto> withEmptyCategories(List<CategoryFacetDto> rows) {
+        Map<Category, CategoryFacetDto> byCategory = new EnumMap<>(Category.class);
+        for (Category category : Category.values()) {
+            byCategory.put(category, new CategoryFacetDto(category, 0L, 0L, null, null));
+        }
+        rows.forEach(row -> byCategory.put(row.getCategory(), row));
+        return new ArrayList<>(byCategory.values());
+    }
+
+    private static int inStock(ProductSnapshot snapshot) {
+        return snapshot.getStockQuantity() > 0 ? 1 : 0;
+    }
+
+    private static class Facet {
+        private long productCount;
+
+        private long inStockCount;
+
+        private Double minPrice;
+
+        private Double maxPrice;
+
+        private boolean priceRangeStale;
+
+        private long modifications;
+    }
+}
@@ -0,0 +1,461 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * In-memory inverted index over product names.
+ * Names are split into lower-case tokens, and every token maps to the IDs of the products containing it.
+ * Each query token must match a name token exactly, as a prefix, or (for longer tokens) within one typo.
+ * Typo candidates are looked up by the first characters of a term and their single-character deletions,
+ * so finding them never scans the terms sharing a first letter. Results are ranked by match quality.
+ * The index is built once the application is ready and then kept up to date from the committed product
+ * changes. Changes this instance doesn't publish, e.g. those of another instance or made directly in the
+ * database, are picked up by a rebuild every rebuild interval.
+ */
+package com.reuveny.Electronics.search;
+
+import com.reuveny.Electronics.dto.ProductNameDto;
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+@Component
+public class ProductSearchIndex {
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int BUILD_BATCH_SIZE = 5000;
+
+    private static final int FUZZY_MIN_TOKEN_LENGTH = 4;
+
+    private static final int EXACT_SCORE = 3;
+
+    private static final int PREFIX_SCORE = 2;
+
+    private static final int FUZZY_SCORE = 1;
+
+    private static final Comparator<ScoredProduct> RANKING =
+            Comparator.comparingInt(ScoredProduct::score)
+                      .reversed()
+                      .thenComparingInt(ScoredProduct::tokenCount)
+                      .thenComparingLong(ScoredProduct::productId);
+
+    private final ProductRepository productRepository;
+
+    private final int maxCandidates;
+
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+
+    /**
+     * Indexed terms by the fuzzy keys of their first characters, see {@link #fuzzyKeys(String)}.
+     */
+    private final Map<String, Set<String>> termsByFuzzyKey = new ConcurrentHashMap<>();
+
+    private final ConcurrentSkipListMap<Long, String[]> documents = new ConcurrentSkipListMap<>();
+
+    private final Set<Long> changedWhileLoading = new HashSet<>();
+
+    private boolean loading;
+
+    private volatile boolean ready;
+
+    public ProductSearchIndex(
+            ProductRepository productRepository,
+            @Value("${product.search.max-candidates:5000}") int maxCandidates
+    ) {
+        this.productRepository = productRepository;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * @return Whether the initial build has completed and queries can be answered from the index.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Loads every product name in ID-ordered batches.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        load();
+        ready = true;
+    }
+
+    /**
+     * Reloads every product name, indexing the names that differ from the indexed ones and removing the
+     * products that no longer exist. Queries keep being answered from the index meanwhile.
+     */
+    @Scheduled(
+            fixedDelayString = "${product.search.rebuild-interval:10m}",
+            initialDelayString = "${product.search.rebuild-interval:10m}"
+    )
+    public void rebuild() {
+        if (ready) {
+            load();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        for (ProductChange change : event.getChanges()) {
+            if (loading) {
+                changedWhileLoading.add(change.getProductId());
+            }
+            if (change.getAfter() == null) {
+                remove(change.getProductId());
+            } else if (change.getBefore() == null || !Objects.equals(change.getBefore()
+                                                                           .getName(),
+                                                                     change.getAfter()
+                                                                           .getName())) {
+                index(change.getProductId(), change.getAfter()
+                                                   .getName());
+            }
+        }
+    }
+
+    /**
+     * Adds a product to the index, replacing any previously indexed name.
+     *
+     * @param productId The ID of the product.
+     * @param name      The name of the product.
+     */
+    public synchronized void index(Long productId, String name) {
+        remove(productId);
+        add(productId, name);
+    }
+
+    /**
+     * Removes a product from the index.
+     *
+     * @param productId The ID of the product.
+     */
+    public synchronized void remove(Long productId) {
+        String[] tokens = documents.remove(productId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Set<Long> productIds = postings.get(token);
+            if (productIds != null) {
+                productIds.remove(productId);
+                if (productIds.isEmpty()) {
+                    postings.remove(token);
+                    for (String key : fuzzyKeys(token)) {
+                        termsByFuzzyKey.computeIfPresent(key, (k, terms) -> {
+                            terms.remove(token);
+                            return terms.isEmpty() ? null : terms;
+                        });
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the best matching products for a free-text query.
+     * Every query token has to match one of the name tokens; exact matches rank above prefix matches,
+     * which rank above single-typo matches, and shorter names win ties.
+     * At most the configured number of candidates is scored, taken from the exact term and then the prefix
+     * completions in alphabetical order, so a very broad query may miss matches beyond it.
+     *
+     * @param query The free-text query.
+     * @param limit The maximum number of product IDs to return.
+     * @return The IDs of the matching products, best match first.
+     */
+    public List<Long> search(String query, int limit) {
+        String[] queryTokens = tokenize(query);
+        if (queryTokens.length == 0 || limit < 1) {
+            return List.of();
+        }
+        // Candidates come from the most selective query token; the others are checked per document.
+        List<Set<Long>> driver = null;
+        long driverSize = Long.MAX_VALUE;
+        // Typos are only tolerated for query tokens that no indexed token starts with.
+        boolean[] typoTolerant = new boolean[queryTokens.length];
+        for (int i = 0; i < queryTokens.length; i++) {
+            String queryToken = queryTokens[i];
+            typoTolerant[i] = !hasPrefixMatch(queryToken);
+            List<Set<Long>> matches = matchingPostings(queryToken, typoTolerant[i]);
+            long size = matches.stream()
+                               .mapToLong(Set::size)
+                               .sum();
+            if (size == 0) {
+                return List.of();
+            }
+            if (size < driverSize) {
+                driver = matches;
+                driverSize = size;
+            }
+        }
+        PriorityQueue<ScoredProduct> best = new PriorityQueue<>(RANKING.reversed());
+        // A product can only show up twice when several indexed tokens matched the driving token.
+        Set<Long> seen = driver.size() > 1 ? new HashSet<>() : null;
+        int scanned = 0;
+        candidates:
+        for (Set<Long> productIds : driver) {
+            for (Long productId : productIds) {
+                if (seen != null && !seen.add(productId)) {
+                    continue;
+                }
+                if (++scanned > maxCandidates) {
+                    break candidates;
+                }
+                String[] documentTokens = documents.get(productId);
+                int score = documentTokens == null ? 0 :
+                            score(queryTokens, typoTolerant, documentTokens);
+                if (score > 0) {
+                    best.offer(new ScoredProduct(productId, score, documentTokens.length));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        }
+        List<ScoredProduct> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        return ranked.stream()
+                     .map(ScoredProduct::productId)
+                     .toList();
+    }
+
+    /**
+     * Brings the index in line with the products, batch by batch. Changes committed while loading are
+     * applied directly and win over the batch rows, which may predate them.
+     */
+    private void load() {
+        synchronized (this) {
+            loading = true;
+        }
+        long after = 0L;
+        List<ProductNameDto> batch;
+        do {
+            batch = productRepository.findNamesAfter(after, Limit.of(BUILD_BATCH_SIZE));
+            synchronized (this) {
+                Set<Long> batchIds = new HashSet<>();
+                for (ProductNameDto product : batch) {
+                    batchIds.add(product.getId());
+                    if (!changedWhileLoading.contains(product.getId()) &&
+                        !Arrays.equals(documents.get(product.getId()), documentTokens(product.getName()))) {
+                        index(product.getId(), product.getName());
+                    }
+                }
+                // Products indexed within the batch's ID range, or past the last batch, have been deleted.
+                Map<Long, String[]> range = batch.size() < BUILD_BATCH_SIZE ? documents.tailMap(after, false) :
+                                            documents.subMap(after, false, batch.get(batch.size() - 1)
+                                                                                .getId(), true);
+                for (Long productId : new ArrayList<>(range.keySet())) {
+                    if (!batchIds.contains(productId) && !changedWhileLoading.contains(productId)) {
+                        remove(productId);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                after = batch.get(batch.size() - 1)
+                             .getId();
+            }
+        } while (batch.size() == BUILD_BATCH_SIZE);
+        synchronized (this) {
+            changedWhileLoading.clear();
+            loading = false;
+        }
+    }
+
+    private void add(Long productId, String name) {
+        String[] tokens = documentTokens(name);
+        documents.put(productId, tokens);
+        for (String token : tokens) {
+            Set<Long> productIds = postings.get(token);
+            if (productIds == null) {
+                productIds = ConcurrentHashMap.newKeySet();
+                postings.put(token, productIds);
+                for (String key : fuzzyKeys(token)) {
+                    termsByFuzzyKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet())
+                                   .add(token);
+                }
+            }
+            productIds.add(productId);
+        }
+    }
+
+    /**
+     * The distinct tokens of a name, reusing the key instances already in the index to share token strings.
+     */
+    private String[] documentTokens(String name) {
+        return Arrays.stream(tokenize(name))
+                     .distinct()
+                     .map(token -> {
+                         String existing = postings.ceilingKey(token);
+                         return token.equals(existing) ? existing : token;
+                     })
+                     .toArray(String[]::new);
+    }
+
+    private boolean hasPrefixMatch(String queryToken) {
+        String next = postings.ceilingKey(queryToken);
+        return next != null && next.startsWith(queryToken);
+    }
+
+    /**
+     * Collects the postings of the indexed terms matching the query token, best match first: the exact term
+     * and the prefix completions in key order, then the terms within one typo. Stops once the candidate cap
+     * is reached, as the search wouldn't scan further anyway.
+     */
+    List<Set<Long>> matchingPostings(String queryToken, boolean typoTolerant) {
+        List<Set<Long>> matches = new ArrayList<>();
+        long collected = 0;
+        for (Set<Long> productIds : postings.subMap(queryToken, true, queryToken + Character.MAX_VALUE, false)
+                                            .values()) {
+            if (collected >= maxCandidates) {
+                return matches;
+            }
+            matches.add(productIds);
+            collected += productIds.size();
+        }
+        if (typoTolerant && queryToken.length() >= FUZZY_MIN_TOKEN_LENGTH) {
+            for (String term : fuzzyCandidates(queryToken)) {
+                Set<Long> productIds = postings.get(term);
+                if (collected >= maxCandidates) {
+                    return matches;
+                }
+                if (productIds != null && matchesWithTypo(queryToken, term)) {
+                    matches.add(productIds);
+                    collected += productIds.size();
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * The indexed terms that may be within one typo of the query token, or of the part of them typed so far,
+     * in alphabetical order. A superset of those terms, which still have to be checked.
+     */
+    Set<String> fuzzyCandidates(String queryToken) {
+        Set<String> candidates = new TreeSet<>();
+        for (String key : fuzzyKeys(queryToken)) {
+            Set<String> terms = termsByFuzzyKey.get(key);
+            if (terms != null) {
+                candidates.addAll(terms);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * The first characters of a token, as many as a fuzzy query token has at least, and every variant of
+     * them with one character deleted. Two tokens within one typo of each other, or of each other's prefix,
+     * share at least one of these keys: an edit past those characters leaves them equal, and a single edit
+     * among them is undone by deleting one character from each side.
+     */
+    private static Set<String> fuzzyKeys(String token) {
+        String start = token.substring(0, Math.min(token.length(), FUZZY_MIN_TOKEN_LENGTH));
+        Set<String> keys = new HashSet<>();
+        keys.add(start);
+        for (int i = 0; i < start.length(); i++) {
+            keys.add(start.substring(0, i) + start.substring(i + 1));
+        }
+        return keys;
+    }
+
+    private static int score(String[] queryTokens, boolean[] typoTolerant,
+                             String[] documentTokens) {
+        int total = 0;
+        for (int i = 0; i < queryTokens.length; i++) {
+            int best = 0;
+            for (String documentToken : documentTokens) {
+                best = Math.max(best, score(queryTokens[i], typoTolerant[i], documentToken));
+                if (best == EXACT_SCORE) {
+                    break;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        // Names that start with what the user typed first are the most likely intent.
+        if (documentTokens[0].startsWith(queryTokens[0])) {
+            total++;
+        }
+        return total;
+    }
+
+    private static int score(String queryToken, boolean typoTolerant, String documentToken) {
+        if (documentToken.equals(queryToken)) {
+            return EXACT_SCORE;
+        } else if (documentToken.startsWith(queryToken)) {
+            return PREFIX_SCORE;
+        } else if (typoTolerant && queryToken.length() >= FUZZY_MIN_TOKEN_LENGTH &&
+                   matchesWithTypo(queryToken, documentToken)) {
+            return FUZZY_SCORE;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether the term, or the part of it the user has typed so far, is within one
+     * insertion, deletion, substitution or adjacent transposition of the query token.
+     */
+    private static boolean matchesWithTypo(String queryToken, String term) {
+        if (withinOneEdit(queryToken, term, term.length())) {
+            return true;
+        }
+        for (int length = queryToken.length() - 1; length <= queryToken.length() + 1; length++) {
+            if (length > 0 && length < term.length() && withinOneEdit(queryToken, term, length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Optimal string alignment distance of at most one between 'a' and the first 'bLength'
+     * characters of 'b', computed without allocating substrings.
+     */
+    private static boolean withinOneEdit(String a, String b, int bLength) {
+        int aLength = a.length();
+        int lengthDifference = aLength - bLength;
+        if (Math.abs(lengthDifference) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < aLength && i < bLength && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (lengthDifference > 0) {
+            return a.regionMatches(i + 1, b, i, bLength - i);
+        } else if (lengthDifference < 0) {
+            return b.regionMatches(i + 1, a, i, aLength - i);
+        } else if (i >= aLength - 1) {
+            return true;
+        } else if (a.regionMatches(i + 1, b, i + 1, aLength - i - 1)) {
+            return true;
+        }
+        return a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i) &&
+               a.regionMatches(i + 2, b, i + 2, aLength - i - 2);
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                     .filter(token -> !token.isEmpty())
+                     .toArray(String[]::new);
+    }
+
+    private record ScoredProduct(long productId, int score, int tokenCount) {
+    }
+}
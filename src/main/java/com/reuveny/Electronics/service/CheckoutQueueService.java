@@ -0,0 +1,60 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Queues checkouts in a transactional outbox for the asynchronous checkout mode, and processes them.
+ */
+package com.reuveny.Electronics.service;
+
+import com.reuveny.Electronics.exception.ResourceNotFoundException;
+import com.reuveny.Electronics.model.CheckoutRequest;
+
+import java.util.List;
+
+public interface CheckoutQueueService {
+    /**
+     * Queues a checkout of the user's shopping cart. The order is created from the cart as it is
+     * when a worker processes the checkout.
+     *
+     * @param userId         The ID of the user.
+     * @param idempotencyKey An optional key: queueing again with the same key returns the checkout
+     *                       queued the first time.
+     * @return The queued checkout, whose ID tracks it.
+     * @throws IllegalArgumentException if the cart is empty, or the key is blank or too long.
+     */
+    CheckoutRequest enqueueCheckout(Long userId, String idempotencyKey);
+
+    /**
+     * Retrieves a queued checkout, to follow its status.
+     *
+     * @param checkoutRequestId The ID of the checkout.
+     * @return The checkout.
+     * @throws ResourceNotFoundException if the checkout is not found.
+     */
+    CheckoutRequest getCheckoutRequest(Long checkoutRequestId);
+
+    /**
+     * Claims the oldest pending checkouts for processing, and those a crashed worker claimed
+     * longer than the claim timeout ago.
+     *
+     * @param limit The maximum number of checkouts to claim.
+     * @return The IDs of the claimed checkouts.
+     */
+    List<Long> claimCheckoutRequests(int limit);
+
+    /**
+     * Places the order of a claimed checkout and completes it, in one transaction.
+     * Does nothing if the checkout isn't claimed anymore.
+     *
+     * @param checkoutRequestId The ID of the checkout.
+     */
+    void processCheckoutRequest(Long checkoutRequestId);
+
+    /**
+     * Marks a claimed checkout as failed.
+     *
+     * @param checkoutRequestId The ID of the checkout.
+     * @param failureReason     Why the order couldn't be placed.
+     */
+    void failCheckoutRequest(Long checkoutRequestId, String failureReason);
+}
@@ -0,0 +1,57 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Reserves and releases product stock for shopping carts and orders.
+ */
+package com.reuveny.Electronics.service;
+
+import java.util.List;
+import java.util.Map;
+
+public interface InventoryService {
+    /**
+     * Takes the given quantity out of a product's available stock, only if enough is left.
+     * A negative quantity puts stock back.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to reserve.
+     * @return true if the stock was reserved, false if the product doesn't exist or hasn't enough stock.
+     */
+    boolean reserveStock(Long productId, int quantity);
+
+    /**
+     * Takes the given quantities out of several products' available stock, all or nothing:
+     * if any product doesn't exist or hasn't enough stock, no stock is taken.
+     * Negative quantities put stock back.
+     *
+     * @param quantities The quantity to reserve per product ID.
+     * @return The IDs of the products that don't exist or haven't enough stock, empty if everything was reserved.
+     */
+    List<Long> reserveStock(Map<Long, Integer> quantities);
+
+    /**
+     * Puts the given quantity back into a product's available stock.
+     * Stock of a product that no longer exists is ignored.
+     *
+     * @param productId The ID of the product.
+     * @param quantity  The quantity to release.
+     */
+    void releaseStock(Long productId, int quantity);
+
+    /**
+     * Puts the given quantities back into several products' available stock at once.
+     * Stock of products that no longer exist is ignored.
+     *
+     * @param quantities The quantity to release per product ID.
+     */
+    void releaseStock(Map<Long, Integer> quantities);
+
+    /**
+     * Retrieves the stock of a product that can still be reserved.
+     *
+     * @param productId The ID of the product.
+     * @return The available stock, or 0 if the product doesn't exist.
+     */
+    int getAvailableStock(Long productId);
+}
@@ -7,10 +7,17 @@
 package com.reuveny.Electronics.service;
 
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.OrderFilterDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionResultDto;
+import com.reuveny.Electronics.dto.OrderSummaryDto;
 import com.reuveny.Electronics.model.Order;
 import com.reuveny.Electronics.model.Status;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface OrderService {
     /**
@@ -28,6 +35,30 @@ public interface OrderService {
      */
     List<Order> getAllOrders();
 
+    /**
+     * Retrieves one page of the orders matching the given filters, newest first, using keyset pagination.
+     *
+     * @param filter The filters to apply; null fields are ignored.
+     * @param after  The cursor returned by the previous page, or null for the first page.
+     * @param limit  The maximum number of orders to return.
+     * @return The page of order summaries and the cursor of the next page.
+     * @throws IllegalArgumentException if the limit or date range is invalid, or the cursor is malformed.
+     */
+    CursorPageDto<OrderSummaryDto> filterOrders(OrderFilterDto filter, String after, int limit);
+
+    /**
+     * Passes every order placed in the given range, oldest first, with its items and their products,
+     * to the given consumer one at a time.
+     * Orders are read in batches and released after being consumed, so memory use doesn't depend on
+     * the number of orders. Each batch is read in its own transaction, and no transaction or connection
+     * is held while the consumer runs.
+     *
+     * @param from     Only orders placed at or after this time, or null for no lower bound.
+     * @param to       Only orders placed before this time, or null for no upper bound.
+     * @param consumer The consumer receiving each order.
+     */
+    void exportOrders(LocalDateTime from, LocalDateTime to, Consumer<Order> consumer);
+
     /**
      * Updates the status of an order.
      * This operation is typically available to an admin to update the order's status (e.g., "Shipped", "Delivered").
@@ -39,6 +70,19 @@ public interface OrderService {
      */
     Order updateOrderStatus(Long orderId, Status status);
 
+    /**
+     * Moves many orders to a new status at once, with chunked set-based updates.
+     * Orders can only move forward, from PENDING to PACKAGING to SHIPPED to DELIVERED, or be cancelled
+     * before being shipped. Orders that aren't found, or whose current status doesn't allow the change,
+     * are rejected and left unchanged.
+     *
+     * @param transition The orders, given by their IDs or by a filter whose status they are moved from,
+     *                   and the status to move them to.
+     * @return The number of updated and rejected orders.
+     * @throws IllegalArgumentException If the orders or the status are missing, or the status can't be reached.
+     */
+    OrderStatusTransitionResultDto transitionOrderStatuses(OrderStatusTransitionDto transition);
+
     /**
      * Cancels an order if it is within 14 days of the order date.
      *
@@ -6,12 +6,22 @@
  */
 package com.reuveny.Electronics.service;
 
+import com.reuveny.Electronics.dto.CategoryFacetDto;
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateResultDto;
+import com.reuveny.Electronics.dto.ProductFilterDto;
+import com.reuveny.Electronics.dto.ProductImportResultDto;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
 import com.reuveny.Electronics.dto.ProductUpdateDto;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
 import com.reuveny.Electronics.model.Category;
 import com.reuveny.Electronics.model.Product;
+import org.springframework.http.MediaType;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProductService {
     /**
@@ -24,19 +34,66 @@ public interface ProductService {
     Product getProductById(Long productId);
 
     /**
-     * Retrieves all available products.
+     * Retrieves a summary of all available products.
      *
      * @return A list of all products.
      */
-    List<Product> getAllProducts();
+    List<ProductSummaryDto> getAllProducts();
 
     /**
-     * Searches for products by name (case-insensitive and partial match).
+     * Retrieves one page of products ordered by ID, using keyset pagination.
      *
-     * @param name The product name to search for.
+     * @param after The opaque cursor returned by the previous page, or null for the first page.
+     * @param limit The maximum number of products to return.
+     * @return The page of products and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is malformed or the limit is not positive.
+     */
+    CursorPageDto<ProductSummaryDto> getProductsPage(String after, int limit);
+
+    /**
+     * Retrieves one page of the products matching the given filters, in the requested order,
+     * using keyset pagination.
+     *
+     * @param filter The filters and sort order (newest first by default).
+     * @param after  The opaque cursor returned by the previous page, or null for the first page.
+     * @param limit  The maximum number of products to return.
+     * @return The page of matching products and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is malformed, the limit is not positive,
+     *                                  or the price range is empty.
+     */
+    CursorPageDto<ProductSummaryDto> filterProducts(ProductFilterDto filter, String after, int limit);
+
+    /**
+     * Passes every product, ordered by ID, to the given consumer one at a time.
+     * Products are read from a database cursor and released after being consumed,
+     * so memory use doesn't depend on the catalog size.
+     *
+     * @param consumer The consumer receiving each product.
+     */
+    void exportProducts(Consumer<Product> consumer);
+
+    /**
+     * Searches for products by name, best match first.
+     * Each word of the query has to match a word of the product name exactly, as a prefix,
+     * or with a single typo (case-insensitive).
+     *
+     * @param name  The product name to search for.
+     * @param limit The maximum number of products to return.
      * @return A list of matching products.
+     * @throws IllegalArgumentException If the limit is not positive.
+     */
+    List<ProductSummaryDto> searchProductsByName(String name, int limit);
+
+    /**
+     * Searches for products by name (case-insensitive and partial match), one page at a time.
+     *
+     * @param name  The product name to search for.
+     * @param after The opaque cursor returned by the previous page, or null for the first page.
+     * @param limit The maximum number of products to return.
+     * @return The page of matching products and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is malformed or the limit is not positive.
      */
-    List<Product> searchProductsByName(String name);
+    CursorPageDto<ProductSummaryDto> searchProductsByNamePage(String name, String after, int limit);
 
     /**
      * Retrieves products by a specific category.
@@ -44,7 +101,26 @@ public interface ProductService {
      * @param category The category of products.
      * @return A list of products in the given category.
      */
-    List<Product> getProductsByCategory(Category category);
+    List<ProductSummaryDto> getProductsByCategory(Category category);
+
+    /**
+     * Retrieves products by a specific category, one page at a time.
+     *
+     * @param category The category of products.
+     * @param after    The opaque cursor returned by the previous page, or null for the first page.
+     * @param limit    The maximum number of products to return.
+     * @return The page of products in the given category and the cursor of the next page.
+     * @throws IllegalArgumentException If the cursor is malformed or the limit is not positive.
+     */
+    CursorPageDto<ProductSummaryDto> getProductsByCategoryPage(Category category, String after, int limit);
+
+    /**
+     * Retrieves, for every category, the number of products, how many of them are in stock,
+     * and their price range.
+     *
+     * @return A list with the facets of every category.
+     */
+    List<CategoryFacetDto> getCategoryFacets();
 
     /**
      * Adds a new product to the system.
@@ -55,6 +131,18 @@ public interface ProductService {
      */
     Product addProduct(Product product);
 
+    /**
+     * Imports products in bulk from a JSON array, NDJSON or CSV stream (with a header row).
+     * Every row is validated like in addProduct; invalid rows are rejected and reported
+     * while the valid ones are inserted in batches, each batch in its own transaction.
+     *
+     * @param input       The stream to read the products from.
+     * @param contentType The format of the stream.
+     * @return A summary of the imported and rejected rows.
+     * @throws IllegalArgumentException If the content type is not supported.
+     */
+    ProductImportResultDto importProducts(InputStream input, MediaType contentType);
+
     /**
      * Updates an existing product's details.
      * Only non-null fields in the provided product object will be updated.
@@ -67,6 +155,17 @@ public interface ProductService {
      */
     Product updateProduct(Long productId, ProductUpdateDto productUpdateDTO);
 
+    /**
+     * Updates the price and/or stock quantity of many products in one transaction.
+     * Each entry is rejected, without failing the others, if it is invalid, repeats a product ID,
+     * or would make the price or stock quantity negative.
+     *
+     * @param updates The price and stock changes, each with an absolute value or a delta.
+     * @return The outcome of every entry, in request order.
+     * @throws IllegalArgumentException If an entry has no product ID.
+     */
+    List<ProductBulkUpdateResultDto> bulkUpdateProducts(List<ProductBulkUpdateDto> updates);
+
     /**
      * Deletes a product by its ID.
      *
@@ -0,0 +1,53 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Reports the sales from the rollups maintained by checkouts and order changes.
+ */
+package com.reuveny.Electronics.service;
+
+import com.reuveny.Electronics.dto.CategorySalesDto;
+import com.reuveny.Electronics.dto.DailySalesDto;
+import com.reuveny.Electronics.dto.ProductSalesDto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesAnalyticsService {
+    /**
+     * Retrieves the sales of each day of a date range that had any.
+     *
+     * @param from The first day of the range.
+     * @param to   The last day of the range.
+     * @return The sales per day, oldest first.
+     * @throws IllegalArgumentException If the range is empty or longer than the maximum.
+     */
+    List<DailySalesDto> getDailySales(LocalDate from, LocalDate to);
+
+    /**
+     * Retrieves the best-selling products, by units sold.
+     *
+     * @param limit The maximum number of products to return.
+     * @return The sales of the best-selling products, best first.
+     * @throws IllegalArgumentException If the limit is not positive.
+     */
+    List<ProductSalesDto> getTopSellingProducts(int limit);
+
+    /**
+     * Retrieves the sales of each product category.
+     *
+     * @return The sales per category, highest revenue first.
+     */
+    List<CategorySalesDto> getCategorySales();
+
+    /**
+     * Recomputes the rollups from all the orders, e.g. to include the orders placed before they existed.
+     */
+    void rebuildSalesRollups();
+
+    /**
+     * Stores the price and category the rollups are computed from on the order items placed before order
+     * items kept them. Runs when the application starts.
+     */
+    void snapshotLegacyOrderItems();
+}
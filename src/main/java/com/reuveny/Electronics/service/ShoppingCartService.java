@@ -6,10 +6,13 @@
  */
 package com.reuveny.Electronics.service;
 
+import com.reuveny.Electronics.dto.ShoppingCartItemUpdateDto;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
 import com.reuveny.Electronics.model.Order;
 import com.reuveny.Electronics.model.ShoppingCart;
 
+import java.util.List;
+
 public interface ShoppingCartService {
     /**
      * Retrieves the shopping cart associated with a user.
@@ -19,6 +22,12 @@ public interface ShoppingCartService {
      */
     ShoppingCart getCartByUserId(Long userId);
 
+    /**
+     * Prices the carts saved before totals were kept in cents, once, at their products' current prices.
+     * Runs when the application starts, so reading a cart never has to write it.
+     */
+    void priceLegacyCarts();
+
     /**
      * Adds a product to the user's shopping cart.
      *
@@ -50,6 +59,21 @@ public interface ShoppingCartService {
      */
     ShoppingCart clearCart(Long userId);
 
+    /**
+     * Sets the quantities of many products in the user's shopping cart in one transaction,
+     * reserving or releasing their stock all at once. A quantity of 0 removes the product.
+     * Either every change is applied or none is.
+     *
+     * @param userId  The ID of the user.
+     * @param updates The new quantities, at most one per product ID.
+     * @return The updated shopping cart.
+     * @throws IllegalArgumentException  if the shopping cart is not initialized, an update is invalid,
+     *                                   there are more updates than allowed at once or there is
+     *                                   insufficient stock for any of the products.
+     * @throws ResourceNotFoundException if a product to add is not found.
+     */
+    ShoppingCart updateCart(Long userId, List<ShoppingCartItemUpdateDto> updates);
+
     /**
      * Processes the checkout operation, creating an order from the shopping cart.
      *
@@ -58,4 +82,17 @@ public interface ShoppingCartService {
      * @throws IllegalStateException if the cart is empty.
      */
     Order checkout(Long userId);
+
+    /**
+     * Processes the checkout operation once per idempotency key: the first call creates an order
+     * from the shopping cart, and every later call with the same key returns that order.
+     * A call made while the first one is still running waits for it.
+     *
+     * @param userId         The ID of the user.
+     * @param idempotencyKey The key the client sends every attempt of the same checkout with.
+     * @return The order created for the key, fully loaded.
+     * @throws IllegalArgumentException  if the key is blank or too long, or the cart is empty.
+     * @throws ResourceNotFoundException if the order created for the key has been canceled since.
+     */
+    Order checkout(Long userId, String idempotencyKey);
 }
@@ -0,0 +1,122 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Implementation of CheckoutQueueService over the checkout_requests outbox table.
+ */
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.exception.ResourceNotFoundException;
+import com.reuveny.Electronics.model.CheckoutRequest;
+import com.reuveny.Electronics.model.CheckoutStatus;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.repository.CheckoutRequestRepository;
+import com.reuveny.Electronics.repository.ItemRepository;
+import com.reuveny.Electronics.retry.RetryOnConflict;
+import com.reuveny.Electronics.service.CheckoutQueueService;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CheckoutQueueServiceImpl implements CheckoutQueueService {
+    private static final int MAX_FAILURE_REASON_LENGTH = 1000;
+
+    private final CheckoutRequestRepository checkoutRequestRepository;
+
+    private final ItemRepository itemRepository;
+
+    private final ShoppingCartService shoppingCartService;
+
+    @Value("${checkout.async.claim-timeout:5m}")
+    private Duration claimTimeout;
+
+    @Override
+    @Transactional
+    public CheckoutRequest enqueueCheckout(Long userId, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            ShoppingCartServiceImpl.validateIdempotencyKey(idempotencyKey);
+            Optional<CheckoutRequest> queued = checkoutRequestRepository.findByUserIdAndIdempotencyKey(userId,
+                                                                                                       idempotencyKey);
+            if (queued.isPresent()) {
+                return queued.get();
+            }
+        }
+        if (!itemRepository.existsByShoppingCartUserId(userId)) {
+            throw new IllegalArgumentException(
+                    "Shopping cart is empty. Add items before checkout.");
+        }
+        if (idempotencyKey == null) {
+            CheckoutRequest checkoutRequest = new CheckoutRequest();
+            checkoutRequest.setUserId(userId);
+            checkoutRequest.setStatus(CheckoutStatus.PENDING);
+            checkoutRequest.setCreatedAt(LocalDateTime.now());
+            return checkoutRequestRepository.save(checkoutRequest);
+        }
+        // A concurrent call with the same key makes the insert wait for it, then do nothing.
+        checkoutRequestRepository.insertIfAbsent(userId, idempotencyKey);
+        return checkoutRequestRepository.findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                                        .orElseThrow(() -> new IllegalStateException(
+                                                "Checkout with idempotency key hasn't been queued."));
+    }
+
+    @Override
+    public CheckoutRequest getCheckoutRequest(Long checkoutRequestId) {
+        return checkoutRequestRepository.findById(checkoutRequestId)
+                                        .orElseThrow(() -> new ResourceNotFoundException(
+                                                "Checkout " + checkoutRequestId + " hasn't been found."));
+    }
+
+    @Override
+    @Transactional
+    public List<Long> claimCheckoutRequests(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = checkoutRequestRepository.lockClaimableIds(now.minus(claimTimeout), limit);
+        if (!ids.isEmpty()) {
+            checkoutRequestRepository.updateClaims(ids, CheckoutStatus.PROCESSING, now);
+        }
+        return ids;
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
+    public void processCheckoutRequest(Long checkoutRequestId) {
+        CheckoutRequest checkoutRequest = checkoutRequestRepository.findByIdForUpdate(checkoutRequestId)
+                                                                   .orElseThrow(() -> new ResourceNotFoundException(
+                                                                           "Checkout " + checkoutRequestId +
+                                                                           " hasn't been found."));
+        // Completed meanwhile by a worker that was taken for crashed.
+        if (checkoutRequest.getStatus() != CheckoutStatus.PROCESSING) {
+            return;
+        }
+        Order order = shoppingCartService.checkout(checkoutRequest.getUserId());
+        checkoutRequest.setStatus(CheckoutStatus.COMPLETED);
+        checkoutRequest.setOrderId(order.getId());
+        checkoutRequest.setCompletedAt(LocalDateTime.now());
+    }
+
+    @Override
+    @Transactional
+    public void failCheckoutRequest(Long checkoutRequestId, String failureReason) {
+        checkoutRequestRepository.findByIdForUpdate(checkoutRequestId)
+                                 .filter((checkoutRequest) -> checkoutRequest.getStatus() ==
+                                                              CheckoutStatus.PROCESSING)
+                                 .ifPresent((checkoutRequest) -> {
+                                     checkoutRequest.setStatus(CheckoutStatus.FAILED);
+                                     checkoutRequest.setFailureReason(
+                                             failureReason == null || failureReason.length() <=
+                                                                      MAX_FAILURE_REASON_LENGTH ? failureReason :
+                                                     failureReason.substring(0, MAX_FAILURE_REASON_LENGTH));
+                                     checkoutRequest.setCompletedAt(LocalDateTime.now());
+                                 });
+    }
+}
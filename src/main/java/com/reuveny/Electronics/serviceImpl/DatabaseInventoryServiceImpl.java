@@ -0,0 +1,85 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Implementation of the InventoryService that reserves stock with a conditional update of the product row.
+ */
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.ProductRepositoryCustom;
+import com.reuveny.Electronics.service.InventoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(
+        name = "inventory.mode",
+        havingValue = "database",
+        matchIfMissing = true
+)
+@RequiredArgsConstructor
+public class DatabaseInventoryServiceImpl implements InventoryService {
+    private final ProductRepository productRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public boolean reserveStock(Long productId, int quantity) {
+        Optional<ProductSnapshot> after = productRepository.reserveStock(productId, quantity);
+        after.ifPresent(snapshot -> eventPublisher.publishEvent(ProductChangedEvent.of(
+                ProductChange.stockChanged(productId, snapshot, snapshot.getStockQuantity() + quantity))));
+        return after.isPresent();
+    }
+
+    @Override
+    public List<Long> reserveStock(Map<Long, Integer> quantities) {
+        List<ProductRepositoryCustom.PriceStockUpdate> rows = productRepository.reserveStock(quantities);
+        List<Long> unavailable = rows.stream()
+                                     .filter(row -> row.after() == null)
+                                     .filter(row -> row.before() == null || row.before()
+                                                                               .getStockQuantity() <
+                                                                            quantities.get(row.productId()))
+                                     .map(ProductRepositoryCustom.PriceStockUpdate::productId)
+                                     .toList();
+        if (unavailable.isEmpty() && !rows.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(
+                    rows.stream()
+                        .map(row -> new ProductChange(row.productId(), row.before(), row.after()))
+                        .toList()));
+        }
+        return unavailable;
+    }
+
+    @Override
+    public void releaseStock(Long productId, int quantity) {
+        reserveStock(productId, -quantity);
+    }
+
+    @Override
+    public void releaseStock(Map<Long, Integer> quantities) {
+        List<ProductChange> changes = productRepository.releaseStock(quantities)
+                                                       .stream()
+                                                       .map(row -> new ProductChange(row.productId(), row.before(),
+                                                                                     row.after()))
+                                                       .toList();
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(changes));
+        }
+    }
+
+    @Override
+    public int getAvailableStock(Long productId) {
+        return productRepository.findAvailableStock(productId)
+                                .orElse(0);
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Implementation of the InventoryService that reserves stock from in-memory counters, so concurrent carts
+ * of a hot product don't queue on its row lock. Only for a single application instance.
+ *
+ * Every reservation is granted with a compare-and-set on the product's counter and recorded in the stock
+ * journal, an append-only table, within the caller's transaction; if that transaction rolls back the
+ * counter is given the quantity back. The journal is periodically written to the products with one
+ * set-based statement. Counters are loaded as the product's stock plus its journal entries, so nothing
+ * is lost on a crash: committed reservations stay in the journal and the first flush after a restart
+ * applies them. Stock changed on the products directly, e.g. by an admin, is applied to the counters
+ * after it's committed.
+ */
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.StockJournalFlushedEvent;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.service.InventoryService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@ConditionalOnProperty(
+        name = "inventory.mode",
+        havingValue = "memory"
+)
+@RequiredArgsConstructor
+public class InMemoryInventoryServiceImpl implements InventoryService {
+    private final ProductRepository productRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, AtomicInteger> availableStock = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean reserveStock(Long productId, int quantity) {
+        return reserveStock(Map.of(productId, quantity)).isEmpty();
+    }
+
+    @Override
+    public List<Long> reserveStock(Map<Long, Integer> quantities) {
+        Map<Long, AtomicInteger> reserved = new HashMap<>();
+        List<Long> unavailable = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger available = getAvailableStockCounter(productId);
+            if (available != null && take(available, quantity)) {
+                reserved.put(productId, available);
+            } else {
+                unavailable.add(productId);
+            }
+        });
+        if (!unavailable.isEmpty()) {
+            reserved.forEach((productId, available) -> available.addAndGet(quantities.get(productId)));
+            return unavailable;
+        }
+        Map<Long, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (quantity != 0) {
+                deltas.put(productId, -quantity);
+            }
+        });
+        record(deltas, reserved);
+        return List.of();
+    }
+
+    @Override
+    public void releaseStock(Long productId, int quantity) {
+        releaseStock(Map.of(productId, quantity));
+    }
+
+    @Override
+    public void releaseStock(Map<Long, Integer> quantities) {
+        Map<Long, AtomicInteger> released = new HashMap<>();
+        Map<Long, Integer> deltas = new HashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            AtomicInteger available = getAvailableStockCounter(productId);
+            if (available != null && quantity != 0) {
+                available.addAndGet(quantity);
+                released.put(productId, available);
+                deltas.put(productId, quantity);
+            }
+        });
+        if (!deltas.isEmpty()) {
+            record(deltas, released);
+        }
+    }
+
+    @Override
+    public int getAvailableStock(Long productId) {
+        AtomicInteger available = getAvailableStockCounter(productId);
+        return available == null ? 0 : available.get();
+    }
+
+    /**
+     * Writes the committed journal entries to the products, also right after startup,
+     * and publishes the resulting stock changes.
+     */
+    @Scheduled(fixedDelayString = "${inventory.flush-interval:1s}")
+    @PreDestroy
+    public void flush() {
+        List<ProductChange> changes = productRepository.flushStockJournal()
+                                                       .stream()
+                                                       .map(update -> new ProductChange(update.productId(),
+                                                                                        update.before(),
+                                                                                        update.after()))
+                                                       .toList();
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new StockJournalFlushedEvent(changes));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event instanceof StockJournalFlushedEvent) {
+            return;
+        }
+        for (ProductChange change : event.getChanges()) {
+            if (change.getAfter() == null) {
+                availableStock.remove(change.getProductId());
+            } else if (change.getBefore() != null) {
+                AtomicInteger available = availableStock.get(change.getProductId());
+                if (available != null) {
+                    available.addAndGet(change.getAfter()
+                                              .getStockQuantity() - change.getBefore()
+                                                                          .getStockQuantity());
+                }
+            }
+        }
+    }
+
+    private AtomicInteger getAvailableStockCounter(Long productId) {
+        return availableStock.computeIfAbsent(productId, id -> productRepository.findAvailableStock(id)
+                                                                                .map(AtomicInteger::new)
+                                                                                .orElse(null));
+    }
+
+    private static boolean take(AtomicInteger available, int quantity) {
+        int current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+        return true;
+    }
+
+    /**
+     * Appends stock changes, already applied to the counters, to the journal.
+     * The changes are taken back from the counters unless they're committed.
+     */
+    private void record(Map<Long, Integer> deltas, Map<Long, AtomicInteger> counters) {
+        Runnable revert = () -> deltas.forEach((productId, delta) -> counters.get(productId)
+                                                                             .addAndGet(-delta));
+        boolean inTransaction = TransactionSynchronizationManager.isSynchronizationActive();
+        if (inTransaction) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        revert.run();
+                    }
+                }
+            });
+        }
+        try {
+            productRepository.appendStockJournal(deltas);
+        } catch (RuntimeException ex) {
+            if (!inTransaction) {
+                revert.run();
+            }
+            throw ex;
+        }
+    }
+}
@@ -6,34 +6,82 @@
  */
 package com.reuveny.Electronics.serviceImpl;
 
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.OrderFilterDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionResultDto;
+import com.reuveny.Electronics.dto.OrderSummaryDto;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
-import com.reuveny.Electronics.model.Item;
 import com.reuveny.Electronics.model.Order;
-import com.reuveny.Electronics.model.Product;
 import com.reuveny.Electronics.model.Status;
+import com.reuveny.Electronics.repository.ItemRepository;
 import com.reuveny.Electronics.repository.OrderRepository;
-import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.OrderRepositoryCustom;
+import com.reuveny.Electronics.repository.OrderSpecifications;
 import com.reuveny.Electronics.repository.ShoppingCartRepository;
 import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.retry.RetryOnConflict;
+import com.reuveny.Electronics.service.InventoryService;
 import com.reuveny.Electronics.service.OrderService;
+import com.reuveny.Electronics.util.CursorCodec;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final String ORDER_CURSOR_SORT = "NEWEST";
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    /**
+     * The statuses each status can be reached from by a bulk transition.
+     */
+    private static final Map<Status, Set<Status>> PREVIOUS_STATUSES = Map.of(
+            Status.PACKAGING, Set.of(Status.PENDING),
+            Status.SHIPPED, Set.of(Status.PACKAGING),
+            Status.DELIVERED, Set.of(Status.SHIPPED),
+            Status.CANCELED, Set.of(Status.PENDING, Status.PACKAGING)
+    );
+
     private final OrderRepository orderRepository;
 
+    private final ItemRepository itemRepository;
+
     private final UserRepository userRepository;
 
     private final ShoppingCartRepository shoppingCartRepository;
 
-    private final ProductRepository productRepository;
+    private final InventoryService inventoryService;
+
+    private final EntityManager entityManager;
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${order.export.batch-size:500}")
+    private int exportBatchSize;
+
+    @Value("${order.bulk-status.batch-size:1000}")
+    private int bulkStatusBatchSize;
 
     @Override
     public List<Order> getOrdersByUserId(Long userId) {
@@ -42,15 +90,83 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public List<Order> getAllOrders() {
-        return orderRepository.findAll();
+        return orderRepository.findAllWithItemsBy();
+    }
+
+    @Override
+    public CursorPageDto<OrderSummaryDto> filterOrders(OrderFilterDto filter, String after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit has to be a positive value.");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_SIZE);
+        validateDateRange(filter);
+        Specification<Order> specification =
+                Specification.where(OrderSpecifications.hasStatus(filter.getStatus()))
+                             .and(OrderSpecifications.placedFrom(filter.getFrom()))
+                             .and(OrderSpecifications.placedBefore(filter.getTo()))
+                             .and(OrderSpecifications.hasUserId(filter.getUserId()))
+                             .and(getKeysetSpecification(after));
+        List<OrderSummaryDto> orders = orderRepository.findSummaries(specification,
+                                                                     OrderSpecifications.NEWEST_FIRST,
+                                                                     Limit.of(pageSize + 1));
+        boolean hasMore = orders.size() > pageSize;
+        List<OrderSummaryDto> pageItems = hasMore ? orders.subList(0, pageSize) : orders;
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummaryDto lastOrder = pageItems.get(pageSize - 1);
+            nextCursor = CursorCodec.encodeKey(ORDER_CURSOR_SORT, lastOrder.getId(), lastOrder.getOrderDate()
+                                                                                              .toString());
+        }
+        return new CursorPageDto<>(pageItems, nextCursor, hasMore);
+    }
+
+    @Override
+    public void exportOrders(LocalDateTime from, LocalDateTime to, Consumer<Order> consumer) {
+        Specification<Order> range = Specification.where(OrderSpecifications.placedFrom(from))
+                                                  .and(OrderSpecifications.placedBefore(to));
+        // Every batch is read in its own short transaction and consumed after it, so a slow consumer
+        // doesn't hold a connection; each batch restarts from the last key of the previous one.
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        OrderRepositoryCustom.OrderKey[] lastKey = {null};
+        List<Order> orders;
+        do {
+            orders = transactionTemplate.execute(status -> {
+                Specification<Order> remaining = lastKey[0] == null ? range :
+                        range.and(OrderSpecifications.placedAfterKey(lastKey[0].orderDate(), lastKey[0].id()));
+                List<OrderRepositoryCustom.OrderKey> keys =
+                        orderRepository.findKeys(remaining, OrderSpecifications.OLDEST_FIRST,
+                                                 Limit.of(exportBatchSize));
+                if (keys.isEmpty()) {
+                    return List.<Order>of();
+                }
+                lastKey[0] = keys.get(keys.size() - 1);
+                List<Order> batch = orderRepository.findWithItemsByIdIn(keys.stream()
+                                                                            .map(OrderRepositoryCustom.OrderKey::id)
+                                                                            .toList(),
+                                                                        OrderSpecifications.OLDEST_FIRST);
+                // The orders are fully loaded; a surrounding transaction would otherwise pile them up.
+                entityManager.clear();
+                return batch;
+            });
+            orders.forEach(consumer);
+        } while (!orders.isEmpty());
     }
 
     @Override
     @Transactional
+    @RetryOnConflict
     public Order updateOrderStatus(Long orderId, Status status) {
-        return orderRepository.findById(orderId)
+        // The status is locked until the rollups follow it, so concurrent changes can't count it twice.
+        return orderRepository.findLockedWithItemsById(orderId)
                               .map((existingOrder) -> {
+                                  boolean wasSold = isSold(existingOrder.getStatus());
                                   existingOrder.setStatus(status);
+                                  if (!wasSold && isSold(status)) {
+                                      orderRepository.addToSalesRollups(orderId);
+                                  } else if (wasSold && !isSold(status)) {
+                                      orderRepository.subtractFromSalesRollups(orderId);
+                                  }
                                   return orderRepository.save(existingOrder);
                               })
                               .orElseThrow(() -> new ResourceNotFoundException(
@@ -59,21 +175,132 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     @Transactional
+    public OrderStatusTransitionResultDto transitionOrderStatuses(OrderStatusTransitionDto transition) {
+        Status status = transition.getStatus();
+        if (status == null) {
+            throw new IllegalArgumentException("Status is required.");
+        }
+        Set<Status> currentStatuses = PREVIOUS_STATUSES.getOrDefault(status, Set.of());
+        if (currentStatuses.isEmpty()) {
+            throw new IllegalArgumentException("Orders can't be moved to " + status + ".");
+        }
+        if ((transition.getOrderIds() == null) == (transition.getFilter() == null)) {
+            throw new IllegalArgumentException("Either order IDs or a filter is required.");
+        }
+        List<Long> rejectedOrderIds = new ArrayList<>();
+        int updatedCount = transition.getOrderIds() != null ?
+                transitionOrders(transition.getOrderIds(), currentStatuses, status, rejectedOrderIds) :
+                transitionFilteredOrders(transition.getFilter(), currentStatuses, status, rejectedOrderIds);
+        return new OrderStatusTransitionResultDto(updatedCount, rejectedOrderIds.size(),
+                                                  rejectedOrderIds.subList(0, Math.min(rejectedOrderIds.size(),
+                                                                                       MAX_REPORTED_REJECTIONS)));
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
     public void cancelOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
+        Order order = orderRepository.findLockedById(orderId)
                                      .orElseThrow(() -> new ResourceNotFoundException(
                                              "Order " + orderId + " hasn't been found."));
         Duration duration = Duration.between(order.getOrderDate(), LocalDateTime.now());
         if (duration.toDays() <= 14) {
-            for (Item item : order.getItems()) {
-                Product product = item.getProduct();
-                product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-                productRepository.save(product);
+            if (isSold(order.getStatus())) {
+                orderRepository.subtractFromSalesRollups(orderId);
             }
+            inventoryService.releaseStock(itemRepository.deleteOrderItems(orderId));
             orderRepository.deleteById(orderId);
         } else {
             throw new IllegalArgumentException(
                     "Order can be canceled only within 14 days start from the order date.");
         }
     }
-}
\ No newline at end of file
+
+    private int transitionOrders(List<Long> orderIds, Set<Status> currentStatuses, Status status,
+                                 List<Long> rejectedOrderIds) {
+        if (orderIds.contains(null)) {
+            throw new IllegalArgumentException("Order IDs can't be null.");
+        }
+        List<Long> distinctOrderIds = orderIds.stream()
+                                              .distinct()
+                                              .toList();
+        int updatedCount = 0;
+        for (int from = 0; from < distinctOrderIds.size(); from += bulkStatusBatchSize) {
+            updatedCount += updateStatuses(
+                    distinctOrderIds.subList(from, Math.min(from + bulkStatusBatchSize, distinctOrderIds.size())),
+                    currentStatuses, status, rejectedOrderIds);
+        }
+        return updatedCount;
+    }
+
+    private int transitionFilteredOrders(OrderFilterDto filter, Set<Status> currentStatuses, Status status,
+                                         List<Long> rejectedOrderIds) {
+        if (filter.getStatus() == null || !currentStatuses.contains(filter.getStatus())) {
+            throw new IllegalArgumentException(
+                    "Orders can't be moved from " + filter.getStatus() + " to " + status + ".");
+        }
+        validateDateRange(filter);
+        Specification<Order> specification =
+                Specification.where(OrderSpecifications.hasStatus(filter.getStatus()))
+                             .and(OrderSpecifications.placedFrom(filter.getFrom()))
+                             .and(OrderSpecifications.placedBefore(filter.getTo()))
+                             .and(OrderSpecifications.hasUserId(filter.getUserId()));
+        int updatedCount = 0;
+        List<OrderRepositoryCustom.OrderKey> keys = orderRepository.findKeys(
+                specification, OrderSpecifications.OLDEST_FIRST, Limit.of(bulkStatusBatchSize));
+        while (!keys.isEmpty()) {
+            List<Long> orderIds = keys.stream()
+                                      .map(OrderRepositoryCustom.OrderKey::id)
+                                      .toList();
+            // Orders changed meanwhile by someone else are rejected by the status condition of the update.
+            updatedCount += updateStatuses(orderIds, Set.of(filter.getStatus()), status, rejectedOrderIds);
+            OrderRepositoryCustom.OrderKey lastKey = keys.get(keys.size() - 1);
+            keys = orderRepository.findKeys(specification.and(OrderSpecifications.placedAfterKey(lastKey.orderDate(),
+                                                                                                 lastKey.id())),
+                                            OrderSpecifications.OLDEST_FIRST, Limit.of(bulkStatusBatchSize));
+        }
+        return updatedCount;
+    }
+
+    private int updateStatuses(List<Long> orderIds, Set<Status> currentStatuses, Status status,
+                               List<Long> rejectedOrderIds) {
+        Set<Long> updatedOrderIds = new HashSet<>(orderRepository.updateStatuses(orderIds, currentStatuses,
+                                                                                 status));
+        // Orders are only ever moved from statuses that count as sold.
+        if (!isSold(status) && !updatedOrderIds.isEmpty()) {
+            orderRepository.subtractFromSalesRollups(updatedOrderIds);
+        }
+        for (Long orderId : orderIds) {
+            if (!updatedOrderIds.contains(orderId)) {
+                rejectedOrderIds.add(orderId);
+            }
+        }
+        return updatedOrderIds.size();
+    }
+
+    private static void validateDateRange(OrderFilterDto filter) {
+        if (filter.getFrom() != null && filter.getTo() != null && filter.getFrom()
+                                                                         .isAfter(filter.getTo())) {
+            throw new IllegalArgumentException("From date can't be after to date.");
+        }
+    }
+
+    /**
+     * Whether an order in the given status counts in the sales rollups.
+     */
+    private static boolean isSold(Status status) {
+        return status != Status.CANCELED;
+    }
+
+    private static Specification<Order> getKeysetSpecification(String after) {
+        CursorCodec.SortKey key = CursorCodec.decodeKey(after, ORDER_CURSOR_SORT);
+        if (key == null) {
+            return null;
+        }
+        try {
+            return OrderSpecifications.placedBeforeKey(LocalDateTime.parse(key.value()), key.id());
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + after);
+        }
+    }
+}
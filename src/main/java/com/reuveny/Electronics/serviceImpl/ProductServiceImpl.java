@@ -6,56 +6,253 @@
  */
 package com.reuveny.Electronics.serviceImpl;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.reuveny.Electronics.cache.ProductCache;
+import com.reuveny.Electronics.dto.CategoryFacetDto;
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateDto;
+import com.reuveny.Electronics.dto.ProductBulkUpdateResultDto;
+import com.reuveny.Electronics.dto.ProductFilterDto;
+import com.reuveny.Electronics.dto.ProductImportRejectionDto;
+import com.reuveny.Electronics.dto.ProductImportResultDto;
+import com.reuveny.Electronics.dto.ProductSort;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
 import com.reuveny.Electronics.dto.ProductUpdateDto;
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.ProductSnapshot;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
 import com.reuveny.Electronics.model.Category;
 import com.reuveny.Electronics.model.Product;
 import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.ProductRepositoryCustom;
+import com.reuveny.Electronics.repository.ProductSpecifications;
 import com.reuveny.Electronics.repository.WishListRepository;
+import com.reuveny.Electronics.search.CategoryFacetIndex;
+import com.reuveny.Electronics.search.ProductSearchIndex;
 import com.reuveny.Electronics.service.ProductService;
+import com.reuveny.Electronics.util.CursorCodec;
+import jakarta.persistence.EntityManager;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+                                                         .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                                                         .build();
+
     private final ProductRepository productRepository;
 
     private final WishListRepository wishListRepository;
 
+    private final ProductCache productCache;
+
+    private final ProductSearchIndex productSearchIndex;
+
+    private final CategoryFacetIndex categoryFacetIndex;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${product.import.batch-size:1000}")
+    private int importBatchSize;
+
+    @Value("${product.bulk-update.batch-size:1000}")
+    private int bulkUpdateBatchSize;
+
     @Override
     public Product getProductById(Long productId) throws IllegalArgumentException {
-        return productRepository.findById(productId)
-                                .orElseThrow(() -> new ResourceNotFoundException(
-                                        "Product " + productId + " hasn't been found."));
+        return productCache.getById(productId, this::findProductById);
+    }
+
+    @Override
+    public List<ProductSummaryDto> getAllProducts() {
+        return productRepository.findAllSummaries();
+    }
+
+    @Override
+    public CursorPageDto<ProductSummaryDto> getProductsPage(String after, int limit) {
+        int pageSize = validatePageSize(limit);
+        List<ProductSummaryDto> products = productRepository.findSummariesAfter(
+                CursorCodec.decodeId(after), Limit.of(pageSize + 1));
+        return toCursorPage(products, pageSize);
+    }
+
+    @Override
+    public CursorPageDto<ProductSummaryDto> filterProducts(ProductFilterDto filter, String after,
+                                                           int limit) {
+        int pageSize = validatePageSize(limit);
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null &&
+            filter.getMinPrice() > filter.getMaxPrice()) {
+            throw new IllegalArgumentException("Minimum price can't be greater than maximum price.");
+        }
+        ProductSort sort = filter.getSort() == null ? ProductSort.NEWEST : filter.getSort();
+        Specification<Product> specification =
+                Specification.where(ProductSpecifications.hasCategory(filter.getCategory()))
+                             .and(ProductSpecifications.priceAtLeast(filter.getMinPrice()))
+                             .and(ProductSpecifications.priceAtMost(filter.getMaxPrice()))
+                             .and(ProductSpecifications.inStock(filter.getInStock()))
+                             .and(getKeysetSpecification(sort, after));
+        List<ProductSummaryDto> products =
+                productRepository.findSummaries(specification, sort.toSort(), Limit.of(pageSize + 1));
+        return toCursorPage(products, pageSize, lastProduct -> getSortCursor(sort, lastProduct));
+    }
+
+    @Override
+    @Transactional
+    public void exportProducts(Consumer<Product> consumer) {
+        try (Stream<Product> products = productRepository.streamAllByOrderById()) {
+            products.forEach(product -> {
+                consumer.accept(product);
+                entityManager.detach(product);
+            });
+        }
+    }
+
+    @Override
+    public List<ProductSummaryDto> searchProductsByName(String name, int limit) {
+        int pageSize = validatePageSize(limit);
+        if (!productSearchIndex.isReady()) {
+            return productRepository.findSummariesByNameContaining(name, Limit.of(pageSize));
+        }
+        List<Long> productIds = productSearchIndex.search(name, pageSize);
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ProductSummaryDto> products =
+                productRepository.findSummariesByIdIn(productIds)
+                                 .stream()
+                                 .collect(Collectors.toMap(ProductSummaryDto::getId, Function.identity()));
+        return productIds.stream()
+                         .map(products::get)
+                         .filter(Objects::nonNull)
+                         .toList();
+    }
+
+    @Override
+    public CursorPageDto<ProductSummaryDto> searchProductsByNamePage(String name, String after,
+                                                                     int limit) {
+        int pageSize = validatePageSize(limit);
+        List<ProductSummaryDto> products = productRepository.findSummariesByNameContainingAfter(
+                name, CursorCodec.decodeId(after), Limit.of(pageSize + 1));
+        return toCursorPage(products, pageSize);
     }
 
     @Override
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    public List<ProductSummaryDto> getProductsByCategory(Category category) {
+        return productCache.getByCategory(category, productRepository::findSummariesByCategory);
     }
 
     @Override
-    public List<Product> searchProductsByName(String name) {
-        return productRepository.findByNameIgnoreCaseContaining(name);
+    public CursorPageDto<ProductSummaryDto> getProductsByCategoryPage(Category category, String after,
+                                                                      int limit) {
+        int pageSize = validatePageSize(limit);
+        List<ProductSummaryDto> products = productRepository.findSummariesByCategoryAfter(
+                category, CursorCodec.decodeId(after), Limit.of(pageSize + 1));
+        return toCursorPage(products, pageSize);
     }
 
     @Override
-    public List<Product> getProductsByCategory(Category category) {
-        return productRepository.findProductsByCategory(category);
+    public List<CategoryFacetDto> getCategoryFacets() {
+        return categoryFacetIndex.getFacets();
     }
 
     @Override
     public Product addProduct(Product product) {
-        if (product.getPrice() < 0) {
-            throw new IllegalArgumentException("Price has to be a positive value.");
-        } else if (product.getStockQuantity() < 0) {
-            throw new IllegalArgumentException("Stock quantity has to be a positive value.");
+        validateProduct(product);
+        Product addedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(ProductChangedEvent.of(ProductChange.created(addedProduct)));
+        return addedProduct;
+    }
+
+    @Override
+    public ProductImportResultDto importProducts(InputStream input, MediaType contentType) {
+        ObjectReader productReader = getImportReader(contentType);
+        long startedAt = System.nanoTime();
+        long importedRows = 0;
+        long rejectedRows = 0;
+        long row = 0;
+        List<ProductImportRejectionDto> rejections = new ArrayList<>();
+        List<Product> batch = new ArrayList<>(importBatchSize);
+        try (MappingIterator<Product> rows = productReader.readValues(input)) {
+            while (rows.hasNextValue()) {
+                row++;
+                String rejection = null;
+                try {
+                    Product product = rows.nextValue();
+                    validateProduct(product);
+                    batch.add(product);
+                } catch (JsonMappingException ex) {
+                    rejection = ex.getOriginalMessage();
+                } catch (IllegalArgumentException ex) {
+                    rejection = ex.getMessage();
+                }
+                if (rejection != null) {
+                    rejectedRows++;
+                    addRejection(rejections, row, rejection);
+                }
+                if (batch.size() == importBatchSize) {
+                    importedRows += insertProducts(batch);
+                    batch = new ArrayList<>(importBatchSize);
+                }
+            }
+        } catch (JsonParseException ex) {
+            // The parser can't recover from a syntax error, so the rest of the input is skipped.
+            rejectedRows++;
+            addRejection(rejections, row, "Malformed input, the rest of the import was skipped: " +
+                                          ex.getOriginalMessage());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
-        return productRepository.save(product);
+        importedRows += insertProducts(batch);
+        long elapsedNanos = System.nanoTime() - startedAt;
+        double rowsPerSecond = importedRows * 1_000_000_000.0 / Math.max(elapsedNanos, 1);
+        return new ProductImportResultDto(
+                importedRows,
+                rejectedRows,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                rowsPerSecond,
+                rejections
+        );
     }
 
     @Override
@@ -63,6 +260,7 @@ public class ProductServiceImpl implements ProductService {
     public Product updateProduct(Long productId, ProductUpdateDto productUpdateDTO) {
         return productRepository.findById(productId)
                                 .map(existingProduct -> {
+                                    ProductSnapshot before = ProductSnapshot.of(existingProduct);
                                     if (productUpdateDTO.getName() != null &&
                                         !productUpdateDTO.getName()
                                                          .isBlank()) {
@@ -95,21 +293,226 @@ public class ProductServiceImpl implements ProductService {
                                     if (productUpdateDTO.getCategory() != null) {
                                         existingProduct.setCategory(productUpdateDTO.getCategory());
                                     }
-                                    return productRepository.save(existingProduct);
+                                    Product updatedProduct =
+                                            productRepository.save(existingProduct);
+                                    eventPublisher.publishEvent(ProductChangedEvent.of(
+                                            ProductChange.updated(before, updatedProduct)));
+                                    return updatedProduct;
                                 })
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                         "Product " + productId + " hasn't been found"));
     }
 
     @Override
+    @Transactional
+    public List<ProductBulkUpdateResultDto> bulkUpdateProducts(List<ProductBulkUpdateDto> updates) {
+        List<ProductBulkUpdateResultDto> results = new ArrayList<>(updates.size());
+        Map<Long, ProductBulkUpdateDto> acceptedUpdates = new LinkedHashMap<>();
+        Map<Long, ProductBulkUpdateResultDto> pendingResults = new HashMap<>();
+        for (ProductBulkUpdateDto update : updates) {
+            if (update == null || update.getProductId() == null) {
+                throw new IllegalArgumentException("Product ID is required.");
+            }
+            ProductBulkUpdateResultDto result = new ProductBulkUpdateResultDto();
+            result.setProductId(update.getProductId());
+            results.add(result);
+            String rejection = acceptedUpdates.containsKey(update.getProductId()) ?
+                    "Duplicate product ID." : validateBulkUpdate(update);
+            if (rejection != null) {
+                result.setStatus(ProductBulkUpdateResultDto.Status.REJECTED);
+                result.setReason(rejection);
+            } else {
+                acceptedUpdates.put(update.getProductId(), update);
+                pendingResults.put(update.getProductId(), result);
+            }
+        }
+        List<ProductBulkUpdateDto> batch = new ArrayList<>(acceptedUpdates.values());
+        List<ProductChange> changes = new ArrayList<>();
+        for (int from = 0; from < batch.size(); from += bulkUpdateBatchSize) {
+            List<ProductRepositoryCustom.PriceStockUpdate> rows = productRepository.updatePricesAndStock(
+                    batch.subList(from, Math.min(from + bulkUpdateBatchSize, batch.size())));
+            for (ProductRepositoryCustom.PriceStockUpdate row : rows) {
+                ProductBulkUpdateResultDto result = pendingResults.get(row.productId());
+                if (row.before() == null) {
+                    result.setStatus(ProductBulkUpdateResultDto.Status.NOT_FOUND);
+                    result.setReason("Product " + row.productId() + " hasn't been found");
+                } else if (row.after() == null) {
+                    result.setStatus(ProductBulkUpdateResultDto.Status.REJECTED);
+                    result.setReason(getNegativeValueReason(acceptedUpdates.get(row.productId()),
+                                                            row.before()));
+                    result.setPrice(row.before()
+                                       .getPrice());
+                    result.setStockQuantity(row.before()
+                                               .getStockQuantity());
+                } else {
+                    result.setStatus(ProductBulkUpdateResultDto.Status.UPDATED);
+                    result.setPrice(row.after()
+                                       .getPrice());
+                    result.setStockQuantity(row.after()
+                                               .getStockQuantity());
+                    changes.add(new ProductChange(row.productId(), row.before(), row.after()));
+                }
+            }
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new ProductChangedEvent(changes));
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
     public void deleteProduct(Long productId) {
-        productRepository.deleteById(productId);
+        productRepository.findById(productId)
+                         .ifPresent(product -> {
+                             productRepository.delete(product);
+                             eventPublisher.publishEvent(
+                                     ProductChangedEvent.of(ProductChange.deleted(product)));
+                         });
     }
 
     @Override
     @Transactional
     public void removeSelectedProducts(List<Long> productIds) {
+        List<Product> products = productRepository.findAllById(productIds);
         productRepository.removeProductReferences(productIds);
-        productRepository.deleteAllById(productIds);
+        productRepository.deleteAll(products);
+        eventPublisher.publishEvent(new ProductChangedEvent(products.stream()
+                                                                    .map(ProductChange::deleted)
+                                                                    .toList()));
+    }
+
+    private Product findProductById(Long productId) {
+        return productRepository.findById(productId)
+                                .orElseThrow(() -> new ResourceNotFoundException(
+                                        "Product " + productId + " hasn't been found."));
+    }
+
+    private void validateProduct(Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product is required.");
+        } else if (product.getName() == null || product.getName()
+                                                       .isBlank()) {
+            throw new IllegalArgumentException("Name is required.");
+        } else if (product.getImgUrl() == null) {
+            throw new IllegalArgumentException("Image URL is required.");
+        } else if (product.getCategory() == null) {
+            throw new IllegalArgumentException("Category is required.");
+        } else if (product.getPrice() == null || product.getPrice() < 0) {
+            throw new IllegalArgumentException("Price has to be a positive value.");
+        } else if (product.getStockQuantity() == null || product.getStockQuantity() < 0) {
+            throw new IllegalArgumentException("Stock quantity has to be a positive value.");
+        }
+    }
+
+    private Specification<Product> getKeysetSpecification(ProductSort sort, String after) {
+        CursorCodec.SortKey key = CursorCodec.decodeKey(after, sort.name());
+        if (key == null) {
+            return null;
+        }
+        return switch (sort) {
+            case NEWEST -> ProductSpecifications.idAfter(sort.getDirection(), key.id());
+            case NAME -> ProductSpecifications.keyAfter(sort.getProperty(), sort.getDirection(),
+                                                        key.value(), key.id());
+            case PRICE_ASC, PRICE_DESC -> {
+                try {
+                    yield ProductSpecifications.keyAfter(sort.getProperty(), sort.getDirection(),
+                                                         Double.valueOf(key.value()), key.id());
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Invalid cursor: " + after);
+                }
+            }
+        };
+    }
+
+    private String getSortCursor(ProductSort sort, ProductSummaryDto lastProduct) {
+        String value = switch (sort) {
+            case NEWEST -> null;
+            case NAME -> lastProduct.getName();
+            case PRICE_ASC, PRICE_DESC -> String.valueOf(lastProduct.getPrice());
+        };
+        return CursorCodec.encodeKey(sort.name(), lastProduct.getId(), value);
+    }
+
+    private String validateBulkUpdate(ProductBulkUpdateDto update) {
+        if (update.getPrice() != null && update.getPriceDelta() != null) {
+            return "Set either the price or the price delta, not both.";
+        } else if (update.getStockQuantity() != null && update.getStockQuantityDelta() != null) {
+            return "Set either the stock quantity or the stock quantity delta, not both.";
+        } else if (update.getPrice() == null && update.getPriceDelta() == null &&
+                   update.getStockQuantity() == null && update.getStockQuantityDelta() == null) {
+            return "Nothing to update.";
+        } else if (update.getPrice() != null && update.getPrice() < 0) {
+            return "Price has to be a positive value.";
+        } else if (update.getStockQuantity() != null && update.getStockQuantity() < 0) {
+            return "Stock quantity has to be a positive value.";
+        }
+        return null;
+    }
+
+    /**
+     * Tells which value made the database skip an update, from the state the update was applied to.
+     */
+    private String getNegativeValueReason(ProductBulkUpdateDto update, ProductSnapshot current) {
+        double price = update.getPrice() != null ? update.getPrice() :
+                current.getPrice() + Objects.requireNonNullElse(update.getPriceDelta(), 0.0);
+        return price < 0 ? "Price has to be a positive value." :
+                "Stock quantity has to be a positive value.";
+    }
+
+    private ObjectReader getImportReader(MediaType contentType) {
+        if (contentType.isCompatibleWith(TEXT_CSV)) {
+            return CSV_MAPPER.readerFor(Product.class)
+                             .with(CsvSchema.emptySchema()
+                                            .withHeader());
+        } else if (contentType.isCompatibleWith(MediaType.APPLICATION_JSON) ||
+                   contentType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+            return objectMapper.readerFor(Product.class);
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+
+    private int insertProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return 0;
+        }
+        productRepository.insertAll(products);
+        eventPublisher.publishEvent(new ProductChangedEvent(products.stream()
+                                                                    .map(ProductChange::created)
+                                                                    .toList()));
+        return products.size();
+    }
+
+    private void addRejection(List<ProductImportRejectionDto> rejections, long row, String reason) {
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add(new ProductImportRejectionDto(row, reason));
+        }
+    }
+
+    private int validatePageSize(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit has to be a positive value.");
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Trims the extra look-ahead row fetched to detect whether another page exists,
+     * and builds the cursor from the ID of the last row kept.
+     */
+    private CursorPageDto<ProductSummaryDto> toCursorPage(List<ProductSummaryDto> products,
+                                                          int pageSize) {
+        return toCursorPage(products, pageSize, product -> CursorCodec.encodeId(product.getId()));
+    }
+
+    private CursorPageDto<ProductSummaryDto> toCursorPage(
+            List<ProductSummaryDto> products,
+            int pageSize,
+            Function<ProductSummaryDto, String> cursorOf
+    ) {
+        boolean hasMore = products.size() > pageSize;
+        List<ProductSummaryDto> pageItems = hasMore ? products.subList(0, pageSize) : products;
+        String nextCursor = hasMore ? cursorOf.apply(pageItems.get(pageSize - 1)) : null;
+        return new CursorPageDto<>(pageItems, nextCursor, hasMore);
     }
 }
\ No newline at end of file
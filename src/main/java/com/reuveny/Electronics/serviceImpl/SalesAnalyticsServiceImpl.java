@@ -0,0 +1,79 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Implementation of SalesAnalyticsService reading the sales rollups.
+ */
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.dto.CategorySalesDto;
+import com.reuveny.Electronics.dto.DailySalesDto;
+import com.reuveny.Electronics.dto.ProductSalesDto;
+import com.reuveny.Electronics.repository.CategorySalesRepository;
+import com.reuveny.Electronics.repository.DailySalesRepository;
+import com.reuveny.Electronics.repository.OrderRepository;
+import com.reuveny.Electronics.repository.ProductSalesRepository;
+import com.reuveny.Electronics.service.SalesAnalyticsService;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class SalesAnalyticsServiceImpl implements SalesAnalyticsService {
+    private static final int MAX_DAYS = 366;
+
+    private static final int MAX_PAGE_SIZE = 100;
+
+    private final DailySalesRepository dailySalesRepository;
+
+    private final ProductSalesRepository productSalesRepository;
+
+    private final CategorySalesRepository categorySalesRepository;
+
+    private final OrderRepository orderRepository;
+
+    @Override
+    public List<DailySalesDto> getDailySales(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("From date can't be after to date.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("Date range can't be longer than " + MAX_DAYS + " days.");
+        }
+        return dailySalesRepository.findDailySales(from, to);
+    }
+
+    @Override
+    public List<ProductSalesDto> getTopSellingProducts(int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit has to be a positive value.");
+        }
+        return productSalesRepository.findTopSellers(Limit.of(Math.min(limit, MAX_PAGE_SIZE)));
+    }
+
+    @Override
+    public List<CategorySalesDto> getCategorySales() {
+        return categorySalesRepository.findCategorySales();
+    }
+
+    @Override
+    @Transactional
+    public void rebuildSalesRollups() {
+        orderRepository.rebuildSalesRollups();
+    }
+
+    @Override
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void snapshotLegacyOrderItems() {
+        orderRepository.snapshotLegacyOrderItems();
+    }
+}
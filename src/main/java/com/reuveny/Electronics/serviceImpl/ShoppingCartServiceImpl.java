@@ -6,30 +6,57 @@
  */
 package com.reuveny.Electronics.serviceImpl;
 
+import com.reuveny.Electronics.dto.ShoppingCartItemUpdateDto;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
 import com.reuveny.Electronics.model.*;
+import com.reuveny.Electronics.repository.CheckoutIdempotencyKeyRepository;
+import com.reuveny.Electronics.repository.ItemRepository;
 import com.reuveny.Electronics.repository.OrderRepository;
 import com.reuveny.Electronics.repository.ProductRepository;
 import com.reuveny.Electronics.repository.ShoppingCartRepository;
+import com.reuveny.Electronics.retry.RetryOnConflict;
+import com.reuveny.Electronics.service.InventoryService;
 import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.util.Money;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ShoppingCartServiceImpl implements ShoppingCartService {
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final ShoppingCartRepository shoppingCartRepository;
 
+    private final ItemRepository itemRepository;
+
     private final ProductRepository productRepository;
 
     private final OrderRepository orderRepository;
 
+    private final InventoryService inventoryService;
+
+    private final CheckoutIdempotencyKeyRepository checkoutIdempotencyKeyRepository;
+
+    @Value("${cart.update.max-lines:500}")
+    private int maxCartUpdates;
+
     @Override
     public ShoppingCart getCartByUserId(Long userId) {
         return shoppingCartRepository.findCartByUserId(userId);
@@ -37,114 +64,155 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Override
     @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void priceLegacyCarts() {
+        shoppingCartRepository.priceLegacyCartItems();
+        shoppingCartRepository.totalLegacyCarts();
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
     public ShoppingCart addProductToCart(Long userId, Long productId, int quantity) {
         ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
         if (shoppingCart == null)
             throw new IllegalArgumentException("Shopping cart must be initialized first.");
+        priceLegacyCart(shoppingCart);
         Product product = productRepository.findById(productId)
                                            .orElseThrow(() -> new ResourceNotFoundException(
                                                    "Product " + productId + " hasn't been found."));
-        Optional<Item> existingItem = shoppingCart.getItems()
-                                                  .stream()
-                                                  .filter(item -> item.getProduct()
-                                                                      .getId()
-                                                                      .equals(productId))
-                                                  .findAny()
-                ;
+        Optional<Item> existingItem = itemRepository.findByShoppingCartIdAndProductId(shoppingCart.getId(),
+                                                                                     productId);
+        int reservedQuantity = quantity - existingItem.map(Item::getQuantity)
+                                                      .orElse(0);
+        if (!inventoryService.reserveStock(productId, reservedQuantity)) {
+            throw new IllegalArgumentException(
+                    "Insufficient stock: Requested " + quantity + ", but only " +
+                    inventoryService.getAvailableStock(productId) + " left in stock.");
+        }
+        Item item;
         if (existingItem.isPresent()) {
-            if (product.getStockQuantity() + existingItem.get()
-                                                         .getQuantity() < quantity) {
-                throw new IllegalArgumentException(
-                        "Insufficient stock: Requested " + quantity + ", but only " +
-                        product.getStockQuantity() + " left in stock.");
-            }
-            product.setStockQuantity(product.getStockQuantity() + existingItem.get()
-                                                                              .getQuantity() -
-                                     quantity);
-            existingItem.get()
-                        .setQuantity(quantity);
+            item = existingItem.get();
+            addToTotal(shoppingCart, -getLineAmountCents(item));
         } else {
-            if (product.getStockQuantity() - quantity < 0) {
-                throw new IllegalArgumentException(
-                        "Insufficient stock: Requested " + quantity + ", but only " +
-                        product.getStockQuantity() + " left in stock.");
-            }
-            Item item = new Item();
-            item.setQuantity(quantity);
+            item = new Item();
             item.setProduct(product);
             item.setShoppingCart(shoppingCart);
+            // Queued by Hibernate without loading the other lines, and inserted on flush.
             shoppingCart.getItems()
                         .add(item);
-            product.setStockQuantity(product.getStockQuantity() - quantity);
         }
-        productRepository.save(product);
-        double newTotalAmount = 0.0;
-        for (Item item : shoppingCart.getItems()) {
-            newTotalAmount += item.getProduct()
-                                  .getPrice() * item.getQuantity();
-        }
-        shoppingCart.setTotalAmount(newTotalAmount);
+        item.setQuantity(quantity);
+        item.setUnitPriceCents(Money.toCents(product.getPrice()));
+        item.setReservedAt(LocalDateTime.now());
+        addToTotal(shoppingCart, getLineAmountCents(item));
         return shoppingCartRepository.save(shoppingCart);
     }
 
     @Override
     @Transactional
+    @RetryOnConflict
     public ShoppingCart removeProductFromCart(Long userId, Long productId) {
         ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
-        if (shoppingCart == null || shoppingCart.getItems()
-                                                .isEmpty()) {
+        Optional<Item> itemToRemove = shoppingCart == null ? Optional.empty() :
+                itemRepository.findByShoppingCartIdAndProductId(shoppingCart.getId(), productId);
+        if (shoppingCart == null || itemToRemove.isEmpty() && shoppingCart.getItems()
+                                                                          .isEmpty()) {
             throw new IllegalArgumentException(
                     "Shopping cart for user " + userId + " is empty or not found.");
         }
-        Optional<Item> itemToRemove = shoppingCart.getItems()
-                                                  .stream()
-                                                  .filter((item) -> item.getProduct()
-                                                                        .getId()
-                                                                        .equals(productId))
-                                                  .findFirst()
-                ;
+        priceLegacyCart(shoppingCart);
         itemToRemove.ifPresent((item) -> {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productRepository.save(product);
-            shoppingCart.getItems()
-                        .remove(item);
+            releaseStock(item);
+            addToTotal(shoppingCart, -getLineAmountCents(item));
+            removeLine(shoppingCart, item);
         });
-        double newTotalAmount = 0.0;
-        for (Item item : shoppingCart.getItems()) {
-            newTotalAmount += item.getProduct()
-                                  .getPrice() * item.getQuantity();
+        return shoppingCartRepository.save(shoppingCart);
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
+    public ShoppingCart updateCart(Long userId, List<ShoppingCartItemUpdateDto> updates) {
+        ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
+        if (shoppingCart == null)
+            throw new IllegalArgumentException("Shopping cart must be initialized first.");
+        validateCartUpdates(updates, maxCartUpdates);
+        priceLegacyCart(shoppingCart);
+        Set<Long> productIds = updates.stream()
+                                      .map(ShoppingCartItemUpdateDto::getProductId)
+                                      .collect(Collectors.toSet());
+        // Loaded first, so the lines below find their products already in the persistence context.
+        Map<Long, Product> products = productRepository.findAllById(productIds)
+                                                       .stream()
+                                                       .collect(Collectors.toMap(Product::getId,
+                                                                                 Function.identity()));
+        Map<Long, Item> existingItems = itemRepository.findByShoppingCartIdAndProductIdIn(shoppingCart.getId(),
+                                                                                          productIds)
+                                                      .stream()
+                                                      .collect(Collectors.toMap(item -> item.getProduct()
+                                                                                            .getId(),
+                                                                                Function.identity()));
+        Map<Long, Integer> reservedQuantities = new HashMap<>();
+        for (ShoppingCartItemUpdateDto update : updates) {
+            Item existingItem = existingItems.get(update.getProductId());
+            if (update.getQuantity() > 0 && !products.containsKey(update.getProductId())) {
+                throw new ResourceNotFoundException("Product " + update.getProductId() + " hasn't been found.");
+            }
+            int reservedQuantity = update.getQuantity() - (existingItem == null ? 0 : existingItem.getQuantity());
+            if (reservedQuantity != 0) {
+                reservedQuantities.put(update.getProductId(), reservedQuantity);
+            }
+        }
+        List<Long> unavailable = inventoryService.reserveStock(reservedQuantities);
+        if (!unavailable.isEmpty()) {
+            throw new IllegalArgumentException("Insufficient stock for products " + unavailable + ".");
+        }
+        for (ShoppingCartItemUpdateDto update : updates) {
+            Item item = existingItems.get(update.getProductId());
+            if (item != null) {
+                addToTotal(shoppingCart, -getLineAmountCents(item));
+            }
+            if (update.getQuantity() == 0) {
+                if (item != null) {
+                    removeLine(shoppingCart, item);
+                }
+                continue;
+            }
+            if (item == null) {
+                item = new Item();
+                item.setProduct(products.get(update.getProductId()));
+                item.setShoppingCart(shoppingCart);
+                shoppingCart.getItems()
+                            .add(item);
+            }
+            item.setQuantity(update.getQuantity());
+            item.setUnitPriceCents(Money.toCents(item.getProduct()
+                                                     .getPrice()));
+            item.setReservedAt(LocalDateTime.now());
+            addToTotal(shoppingCart, getLineAmountCents(item));
         }
-        shoppingCart.setTotalAmount(newTotalAmount);
         return shoppingCartRepository.save(shoppingCart);
     }
 
     @Override
     @Transactional
+    @RetryOnConflict
     public ShoppingCart clearCart(Long userId) {
-        ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
-        if (shoppingCart == null || shoppingCart.getItems()
-                                                .isEmpty()) {
+        Map<Long, Integer> quantities = itemRepository.deleteCartItemsByUserId(userId);
+        if (quantities.isEmpty()) {
             throw new IllegalArgumentException(
                     "Shopping cart for user " + userId + " is empty or not found.");
         }
-        shoppingCart.getItems()
-                    .forEach((
-                                     item -> {
-                                         Product product = item.getProduct();
-                                         product.setStockQuantity(
-                                                 product.getStockQuantity() + item.getQuantity());
-                                         productRepository.save(product);
-                                     }
-                             ));
-        shoppingCart.getItems()
-                    .clear();
-        shoppingCart.setTotalAmount(0.0);
+        inventoryService.releaseStock(quantities);
+        ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
+        shoppingCart.setTotalAmountCents(0L);
         return shoppingCartRepository.save(shoppingCart);
     }
 
     @Override
     @Transactional
+    @RetryOnConflict
     public Order checkout(Long userId) {
         ShoppingCart shoppingCart = shoppingCartRepository.findCartByUserId(userId);
         if (shoppingCart == null || shoppingCart.getItems()
@@ -152,6 +220,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
             throw new IllegalArgumentException(
                     "Shopping cart is empty. Add items before checkout.");
         }
+        priceLegacyCart(shoppingCart);
         Order order = new Order();
         order.setOrderDate(LocalDateTime.now());
         order.setTotalAmount(shoppingCart.getTotalAmount());
@@ -161,6 +230,9 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         for (Item cartItem : shoppingCart.getItems()) {
             Item orderItem = new Item();
             orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setUnitPriceCents(cartItem.getUnitPriceCents());
+            orderItem.setCategory(cartItem.getProduct()
+                                          .getCategory());
             orderItem.setProduct(cartItem.getProduct());
             orderItem.setOrder(order);
             orderItems.add(orderItem);
@@ -168,8 +240,94 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         order.setItems(orderItems);
         shoppingCart.getItems()
                     .clear();
-        shoppingCart.setTotalAmount(0.0);
+        shoppingCart.setTotalAmountCents(0L);
         shoppingCartRepository.save(shoppingCart);
-        return orderRepository.save(order);
+        Order savedOrder = orderRepository.save(order);
+        orderRepository.addToSalesRollups(savedOrder.getId());
+        return savedOrder;
+    }
+
+    @Override
+    @Transactional
+    @RetryOnConflict
+    public Order checkout(Long userId, String idempotencyKey) {
+        validateIdempotencyKey(idempotencyKey);
+        if (checkoutIdempotencyKeyRepository.claim(userId, idempotencyKey) == 1) {
+            Order order = checkout(userId);
+            checkoutIdempotencyKeyRepository.updateOrderId(userId, idempotencyKey, order.getId());
+            return order;
+        }
+        Long orderId = checkoutIdempotencyKeyRepository.findOrderIdByUserIdAndIdempotencyKey(userId,
+                                                                                             idempotencyKey)
+                                                       .orElseThrow(() -> new IllegalStateException(
+                                                               "Idempotency key has no order."));
+        return orderRepository.findWithItemsById(orderId)
+                              .orElseThrow(() -> new ResourceNotFoundException(
+                                      "Order " + orderId + " hasn't been found."));
+    }
+
+    static void validateIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new IllegalArgumentException(
+                    "Idempotency key has to be 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters long.");
+        }
+    }
+
+    private static void validateCartUpdates(List<ShoppingCartItemUpdateDto> updates, int maxUpdates) {
+        // Every update is a row of a single statement, whose bind parameters are limited.
+        if (updates.size() > maxUpdates) {
+            throw new IllegalArgumentException("At most " + maxUpdates + " products can be updated at once.");
+        }
+        Set<Long> productIds = new HashSet<>();
+        for (ShoppingCartItemUpdateDto update : updates) {
+            if (update.getProductId() == null) {
+                throw new IllegalArgumentException("Product ID is required.");
+            } else if (update.getQuantity() == null || update.getQuantity() < 0) {
+                throw new IllegalArgumentException(
+                        "Quantity of product " + update.getProductId() + " has to be a positive value.");
+            } else if (!productIds.add(update.getProductId())) {
+                throw new IllegalArgumentException("Duplicate product ID " + update.getProductId() + ".");
+            }
+        }
+    }
+
+    /**
+     * Prices the items of a cart saved before totals were kept in cents, once, from their products.
+     */
+    private void priceLegacyCart(ShoppingCart shoppingCart) {
+        if (shoppingCart.getTotalAmountCents() != null) {
+            return;
+        }
+        shoppingCart.setTotalAmountCents(0L);
+        for (Item item : shoppingCart.getItems()) {
+            item.setUnitPriceCents(Money.toCents(item.getProduct()
+                                                     .getPrice()));
+            addToTotal(shoppingCart, getLineAmountCents(item));
+        }
+    }
+
+    /**
+     * Deletes a cart line, without loading the cart's other lines unless they already are.
+     */
+    private void removeLine(ShoppingCart shoppingCart, Item item) {
+        if (Hibernate.isInitialized(shoppingCart.getItems())) {
+            shoppingCart.getItems()
+                        .remove(item);
+        } else {
+            itemRepository.delete(item);
+        }
+    }
+
+    private static long getLineAmountCents(Item item) {
+        return item.getUnitPriceCents() * item.getQuantity();
+    }
+
+    private static void addToTotal(ShoppingCart shoppingCart, long amountCents) {
+        shoppingCart.setTotalAmountCents(shoppingCart.getTotalAmountCents() + amountCents);
+    }
+
+    private void releaseStock(Item item) {
+        inventoryService.releaseStock(item.getProduct()
+                                          .getId(), item.getQuantity());
     }
 }
\ No newline at end of file
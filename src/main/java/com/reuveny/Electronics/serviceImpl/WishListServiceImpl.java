@@ -8,20 +8,18 @@ package com.reuveny.Electronics.serviceImpl;
 
 import com.reuveny.Electronics.exception.ResourceAlreadyExistsException;
 import com.reuveny.Electronics.exception.ResourceNotFoundException;
-import com.reuveny.Electronics.model.Item;
 import com.reuveny.Electronics.model.Product;
-import com.reuveny.Electronics.model.ShoppingCart;
 import com.reuveny.Electronics.model.WishList;
 import com.reuveny.Electronics.repository.ProductRepository;
-import com.reuveny.Electronics.repository.ShoppingCartRepository;
 import com.reuveny.Electronics.repository.WishListRepository;
+import com.reuveny.Electronics.retry.RetryOnConflict;
+import com.reuveny.Electronics.service.ShoppingCartService;
 import com.reuveny.Electronics.service.WishListService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -30,7 +28,7 @@ public class WishListServiceImpl implements WishListService {
 
     private final ProductRepository productRepository;
 
-    private final ShoppingCartRepository shoppingCartRepository;
+    private final ShoppingCartService shoppingCartService;
 
     @Override
     public WishList getWishListByUserId(Long userId) {
@@ -39,6 +37,7 @@ public class WishListServiceImpl implements WishListService {
 
     @Override
     @Transactional
+    @RetryOnConflict
     public WishList addProductToWishList(Long userId, Long productId) {
         WishList wishList = wishListRepository.findWishListByUserId(userId);
         if (wishList == null) {
@@ -59,6 +58,7 @@ public class WishListServiceImpl implements WishListService {
 
     @Override
     @Transactional
+    @RetryOnConflict
     public WishList removeProductFromWishList(Long userId, Long productId) {
         WishList wishList = wishListRepository.findWishListByUserId(userId);
         if (wishList == null || wishList.getProducts()
@@ -80,65 +80,23 @@ public class WishListServiceImpl implements WishListService {
 
     @Override
     @Transactional
+    @RetryOnConflict
     public WishList moveToShoppingCart(Long userId, Long productId, int quantity) {
         WishList wishList = wishListRepository.findWishListByUserId(userId);
         if (wishList == null || wishList.getProducts()
                                         .isEmpty()) {
             throw new ResourceNotFoundException("Wishlist " + userId + " hasn't been found.");
         }
-        Product product = productRepository.findById(productId)
-                                           .orElseThrow(() -> new ResourceNotFoundException(
-                                                   "Product " + productId + " hasn't been found."));
-        ShoppingCart shoppingCart = wishList.getUser()
-                                            .getShoppingCart();
-        Optional<Item> existingItem = shoppingCart.getItems()
-                                                  .stream()
-                                                  .filter(item -> item.getProduct()
-                                                                      .getId()
-                                                                      .equals(productId))
-                                                  .findAny()
-                ;
-        if (existingItem.isPresent()) {
-            if (product.getStockQuantity() + existingItem.get()
-                                                         .getQuantity() < quantity) {
-                throw new IllegalArgumentException(
-                        "Insufficient stock: Requested " + quantity + ", but only " +
-                        product.getStockQuantity() + " left in stock.");
-            }
-            product.setStockQuantity(product.getStockQuantity() + existingItem.get()
-                                                                              .getQuantity() -
-                                     quantity);
-            existingItem.get()
-                        .setQuantity(quantity);
-        } else {
-            if (product.getStockQuantity() - quantity < 0) {
-                throw new IllegalArgumentException(
-                        "Insufficient stock: Requested " + quantity + ", but only " +
-                        product.getStockQuantity() + " left in stock.");
-            }
-            Item item = new Item();
-            item.setQuantity(quantity);
-            item.setProduct(product);
-            item.setShoppingCart(shoppingCart);
-            shoppingCart.getItems()
-                        .add(item);
-            product.setStockQuantity(product.getStockQuantity() - quantity);
-        }
-        productRepository.save(product);
-        double newTotalAmount = 0.0;
-        for (Item item : shoppingCart.getItems()) {
-            newTotalAmount += item.getProduct()
-                                  .getPrice() * item.getQuantity();
-        }
-        shoppingCart.setTotalAmount(newTotalAmount);
-        shoppingCartRepository.save(shoppingCart);
+        shoppingCartService.addProductToCart(userId, productId, quantity);
         wishList.getProducts()
-                .remove(product);
+                .removeIf(product -> product.getId()
+                                            .equals(productId));
         return wishList;
     }
 
     @Override
     @Transactional
+    @RetryOnConflict
     public WishList clearWishList(Long userId) {
         WishList wishList = wishListRepository.findWishListByUserId(userId);
         if (wishList == null || wishList.getProducts()
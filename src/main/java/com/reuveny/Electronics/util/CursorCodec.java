@@ -0,0 +1,108 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Encodes and decodes the opaque cursors handed out by keyset-paginated endpoints.
+ */
+package com.reuveny.Electronics.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class CursorCodec {
+    private static final String ID_PREFIX = "id:";
+
+    private static final String KEY_SEPARATOR = ":";
+
+    /**
+     * Position of the last row of a page sorted by some value, with its ID as the tie-breaker.
+     */
+    public record SortKey(long id, String value) {
+    }
+
+    private CursorCodec() {
+    }
+
+    /**
+     * Encodes the ID of the last row of a page into an opaque cursor.
+     *
+     * @param id The ID of the last row returned.
+     * @return The opaque cursor pointing right after the given ID.
+     */
+    public static String encodeId(Long id) {
+        return encode(ID_PREFIX + id);
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encodeId(Long)}.
+     *
+     * @param cursor The opaque cursor, may be null or blank for the first page.
+     * @return The ID to continue after, or 0 when no cursor is given.
+     * @throws IllegalArgumentException If the cursor is malformed.
+     */
+    public static long decodeId(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        String decoded = decode(cursor);
+        if (!decoded.startsWith(ID_PREFIX)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            return Long.parseLong(decoded.substring(ID_PREFIX.length()));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /**
+     * Encodes the sort value and ID of the last row of a page into an opaque cursor,
+     * bound to the sort order it was produced for.
+     *
+     * @param sort  The name of the sort order of the page.
+     * @param id    The ID of the last row returned.
+     * @param value The sort value of the last row returned, may be null when sorting by ID.
+     * @return The opaque cursor pointing right after the given row.
+     */
+    public static String encodeKey(String sort, Long id, String value) {
+        return encode(sort + KEY_SEPARATOR + id + KEY_SEPARATOR + (value == null ? "" : value));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encodeKey(String, Long, String)}.
+     *
+     * @param cursor The opaque cursor, may be null or blank for the first page.
+     * @param sort   The name of the sort order of the requested page.
+     * @return The position to continue after, or null when no cursor is given.
+     * @throws IllegalArgumentException If the cursor is malformed or was produced for another sort order.
+     */
+    public static SortKey decodeKey(String cursor, String sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        String[] parts = decode(cursor).split(KEY_SEPARATOR, 3);
+        if (parts.length != 3 || !parts[0].equals(sort)) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        try {
+            return new SortKey(Long.parseLong(parts[1]), parts[2]);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder()
+                     .withoutPadding()
+                     .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder()
+                                    .decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+}
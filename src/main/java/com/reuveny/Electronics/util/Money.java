@@ -0,0 +1,35 @@
+/**
+ * @package Electronics
+ * @author Elad Reuveny
+ *
+ * Converts amounts of money between the decimal prices products are stored with and exact cents.
+ */
+package com.reuveny.Electronics.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+    private Money() {
+    }
+
+    /**
+     * @param amount An amount of money, e.g. a product price.
+     * @return The amount in cents, rounded half up.
+     */
+    public static long toCents(double amount) {
+        return BigDecimal.valueOf(amount)
+                         .movePointRight(2)
+                         .setScale(0, RoundingMode.HALF_UP)
+                         .longValueExact();
+    }
+
+    /**
+     * @param cents An amount of money in cents.
+     * @return The same amount as a decimal.
+     */
+    public static double fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2)
+                         .doubleValue();
+    }
+}
@@ -0,0 +1,116 @@
+package com.reuveny.Electronics.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.support.StatementRecorder;
+import com.reuveny.Electronics.support.TestUsers;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement counts of reading and serializing the order history of a user, run against the PostgreSQL
+ * database configured by the DB_* environment variables. The seeded orders are rolled back after each test.
+ */
+@SpringBootTest(properties = StatementRecorder.PROPERTY)
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class OrderHistoryStatementCountTests {
+
+	private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(2003, 1, 1, 0, 0);
+
+	@Autowired
+	private OrderController orderController;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Test
+	void readsTheHistoryInOneStatementWhateverItsSize() throws JsonProcessingException {
+		User smallUser = seedOrders(1, 1);
+		User largeUser = seedOrders(30, 5);
+
+		JsonNode small = getOrdersByUserId(smallUser);
+		List<String> smallStatements = StatementRecorder.getStatements();
+		JsonNode large = getOrdersByUserId(largeUser);
+		List<String> largeStatements = StatementRecorder.getStatements();
+
+		assertThat(small).hasSize(1);
+		assertThat(large).hasSize(30);
+		for (JsonNode order : large) {
+			assertThat(order.get("items")).hasSize(5)
+					.allMatch(item -> item.get("product").get("name").asText().startsWith("History product"));
+		}
+		assertThat(smallStatements).hasSize(1);
+		assertThat(largeStatements).hasSize(1);
+	}
+
+	/**
+	 * Reads the orders of the user from a cleared persistence context, serializing them the way the
+	 * response would, and records the statements of both.
+	 */
+	private JsonNode getOrdersByUserId(User user) throws JsonProcessingException {
+		entityManager.clear();
+		StatementRecorder.clear();
+		String json = objectMapper.writeValueAsString(orderController.getOrdersByUserId(user.getId()).getBody());
+		return objectMapper.readTree(json);
+	}
+
+	/**
+	 * Saves a user with the given number of orders, each with an item of every one of the given number of
+	 * products.
+	 */
+	private User seedOrders(int orderCount, int productCount) {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < productCount; i++) {
+			Product product = new Product();
+			product.setName("History product " + i + " " + UUID.randomUUID());
+			product.setPrice(10.0 + i);
+			product.setImgUrl("https://img.example.com/history");
+			product.setStockQuantity(10);
+			product.setCategory(Category.LAPTOP);
+			products.add(product);
+		}
+		products = productRepository.saveAllAndFlush(products);
+
+		User user = userRepository.saveAndFlush(TestUsers.newUser("history"));
+
+		jdbcTemplate.update("INSERT INTO orders (order_date, total_amount, status, user_id) " +
+						"SELECT ?::timestamp + i * INTERVAL '1 hour', 50, 'PENDING', ? FROM generate_series(1, ?) i",
+				FIRST_ORDER_DATE, user.getId(), orderCount);
+		jdbcTemplate.update("INSERT INTO items (quantity, product_id, order_id, reserved_at) " +
+						"SELECT 1, p.id, o.id, NULL FROM orders o CROSS JOIN products p " +
+						"WHERE o.user_id = ? AND p.id = ANY (?)",
+				user.getId(), products.stream().map(Product::getId).toArray(Long[]::new));
+		return user;
+	}
+}
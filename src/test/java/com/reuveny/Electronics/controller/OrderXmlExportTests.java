@@ -0,0 +1,150 @@
+package com.reuveny.Electronics.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.support.StatementRecorder;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the PostgreSQL database configured by the DB_* environment variables.
+ * The seeded orders are rolled back after each test.
+ */
+@SpringBootTest(properties = {
+		"order.export.batch-size=" + OrderXmlExportTests.BATCH_SIZE,
+		StatementRecorder.PROPERTY
+})
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class OrderXmlExportTests {
+
+	static final int BATCH_SIZE = 200;
+
+	private static final int ORDER_COUNT = 1200;
+
+	private static final int ITEMS_PER_ORDER = 3;
+
+	// No other order is placed this early, so the range only holds the seeded ones.
+	private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(2001, 1, 1, 0, 0);
+
+	private static final XmlMapper XML_MAPPER = new XmlMapper();
+
+	@Autowired
+	private OrderController orderController;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seedOrders() {
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+			Product product = new Product();
+			product.setName("Export product " + i + " " + UUID.randomUUID());
+			product.setPrice(10.0 + i);
+			product.setImgUrl("https://img.example.com/export");
+			product.setStockQuantity(10);
+			product.setCategory(Category.TABLET);
+			products.add(product);
+		}
+		products = productRepository.saveAllAndFlush(products);
+
+		User user = userRepository.saveAndFlush(TestUsers.newUser("export"));
+
+		jdbcTemplate.update("INSERT INTO orders (order_date, total_amount, status, user_id) " +
+						"SELECT ?::timestamp + i * INTERVAL '1 hour', 30, 'PENDING', ? FROM generate_series(0, ?) i",
+				FIRST_ORDER_DATE, user.getId(), ORDER_COUNT - 1);
+		jdbcTemplate.update("INSERT INTO items (quantity, product_id, order_id, reserved_at) " +
+						"SELECT 1, p.id, o.id, NULL FROM orders o CROSS JOIN products p " +
+						"WHERE o.user_id = ? AND p.id = ANY (?)",
+				user.getId(), products.stream().map(Product::getId).toArray(Long[]::new));
+	}
+
+	@Test
+	void streamsTheOrdersOfTheRangeInBatchesOfTwoStatements() throws IOException {
+		// The range skips the first 100 orders and the last 100 ones.
+		LocalDateTime from = FIRST_ORDER_DATE.plusHours(100);
+		LocalDateTime to = FIRST_ORDER_DATE.plusHours(ORDER_COUNT - 100);
+		int expectedOrders = ORDER_COUNT - 200;
+		ResponseEntity<StreamingResponseBody> response = orderController.getAllOrdersAsXML(from, to, false);
+
+		StatementRecorder.clear();
+		int[] statementsBeforeFirstByte = {-1};
+		ByteArrayOutputStream output = new ByteArrayOutputStream() {
+			@Override
+			public void write(byte[] bytes, int offset, int length) {
+				if (statementsBeforeFirstByte[0] < 0) {
+					statementsBeforeFirstByte[0] = StatementRecorder.getStatements().size();
+				}
+				super.write(bytes, offset, length);
+			}
+		};
+		response.getBody().writeTo(output);
+
+		String xml = output.toString(StandardCharsets.UTF_8);
+		assertThat(xml).startsWith("<orders>");
+		JsonNode orders = XML_MAPPER.readTree(xml).get("order");
+		assertThat(orders).hasSize(expectedOrders);
+		assertThat(orders.get(0).get("orderDate").asText()).isEqualTo("2001-01-05, 04:00:00");
+		assertThat(orders.get(expectedOrders - 1).get("orderDate").asText()).isEqualTo("2001-02-15, 19:00:00");
+		for (JsonNode order : orders) {
+			assertThat(order.get("items").get("item")).hasSize(ITEMS_PER_ORDER)
+					.allMatch(item -> item.get("product").get("name").asText().startsWith("Export product"));
+		}
+
+		// The keys and the orders with their items of each batch, and the empty batch that ends the export.
+		int batches = (expectedOrders + BATCH_SIZE - 1) / BATCH_SIZE;
+		assertThat(StatementRecorder.getStatements()).hasSize(2 * batches + 1);
+		// Writing starts after the first batch, however many orders follow.
+		assertThat(statementsBeforeFirstByte[0]).isEqualTo(2);
+	}
+
+	@Test
+	void compressesTheSameDocumentWithGzip() throws IOException {
+		LocalDateTime from = FIRST_ORDER_DATE;
+		LocalDateTime to = FIRST_ORDER_DATE.plusHours(ORDER_COUNT);
+		ByteArrayOutputStream plain = new ByteArrayOutputStream();
+		orderController.getAllOrdersAsXML(from, to, false).getBody().writeTo(plain);
+		ResponseEntity<StreamingResponseBody> response = orderController.getAllOrdersAsXML(from, to, true);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		response.getBody().writeTo(compressed);
+
+		assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+		assertThat(compressed.size()).isLessThan(plain.size() / 5);
+		try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))) {
+			assertThat(inputStream.readAllBytes()).isEqualTo(plain.toByteArray());
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.OrderFilterDto;
+import com.reuveny.Electronics.dto.OrderSummaryDto;
+import com.reuveny.Electronics.model.Status;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.service.OrderService;
+import com.reuveny.Electronics.support.StatementRecorder;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the PostgreSQL database configured by the DB_* environment variables.
+ * The seeded orders are rolled back after each test.
+ */
+@SpringBootTest(properties = StatementRecorder.PROPERTY)
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class OrderFilterQueryTests {
+
+	private static final int ORDER_COUNT = 50_000;
+
+	private static final int USER_COUNT = 50;
+
+	private static final long MAX_PAGE_MILLIS = 50;
+
+	private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+	private static Long seededUserId;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void seedOrders() {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < USER_COUNT; i++) {
+			users.add(TestUsers.newUser("orders"));
+		}
+		users = userRepository.saveAllAndFlush(users);
+		Long[] userIds = users.stream().map(User::getId).toArray(Long[]::new);
+		seededUserId = userIds[0];
+		// Several orders share each minute, so that pages have to break ties on the ID.
+		jdbcTemplate.update("INSERT INTO orders (order_date, total_amount, status, user_id) " +
+						"SELECT ?::timestamp + (i / 3) * INTERVAL '1 minute', i % 1000, " +
+						"(ARRAY['PENDING', 'PACKAGING', 'SHIPPED', 'DELIVERED', 'CANCELED'])[i % 5 + 1], " +
+						"(?::bigint[])[i % " + USER_COUNT + " + 1] " +
+						"FROM generate_series(0, ?) i",
+				FIRST_ORDER_DATE, userIds, ORDER_COUNT - 1);
+		jdbcTemplate.execute("ANALYZE orders");
+	}
+
+	static Stream<Arguments> filters() {
+		LocalDateTime from = FIRST_ORDER_DATE.plusDays(5);
+		LocalDateTime to = FIRST_ORDER_DATE.plusDays(20);
+		return Stream.of(
+				Arguments.of(new OrderFilterDto(null, null, null, null), List.of("idx_orders_order_date_id")),
+				Arguments.of(new OrderFilterDto(null, from, to, null), List.of("idx_orders_order_date_id")),
+				// A status alone matches a fifth of the orders, so walking the date index and filtering is as good.
+				Arguments.of(new OrderFilterDto(Status.SHIPPED, null, null, null),
+						List.of("idx_orders_status_order_date_id", "idx_orders_order_date_id")),
+				Arguments.of(new OrderFilterDto(Status.PENDING, from, to, null),
+						List.of("idx_orders_status_order_date_id")),
+				Arguments.of(new OrderFilterDto(null, null, null, -1L), List.of("idx_orders_user_id_order_date_id"))
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("filters")
+	void fetchesEachPageWithOneIndexOrderedQuery(OrderFilterDto filter, List<String> expectedIndexes) {
+		if (filter.getUserId() != null) {
+			filter.setUserId(seededUserId);
+		}
+		CursorPageDto<OrderSummaryDto> firstPage = orderService.filterOrders(filter, null, 20);
+		assertThat(firstPage.isHasMore()).isTrue();
+		// The first keyset query of the run pays for compiling the criteria query, which isn't what is timed.
+		orderService.filterOrders(filter, firstPage.getNextCursor(), 20);
+
+		StatementRecorder.clear();
+		long startedAt = System.nanoTime();
+		CursorPageDto<OrderSummaryDto> secondPage = orderService.filterOrders(filter, firstPage.getNextCursor(), 20);
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+		List<OrderSummaryDto> bothPages = new ArrayList<>(firstPage.getItems());
+		bothPages.addAll(secondPage.getItems());
+		assertThat(secondPage.getItems()).hasSize(20)
+				.doesNotContainAnyElementsOf(firstPage.getItems());
+		assertThat(bothPages).isSortedAccordingTo(Comparator.comparing(OrderSummaryDto::getOrderDate)
+				.thenComparing(OrderSummaryDto::getId)
+				.reversed());
+		assertThat(bothPages).allMatch(order -> filter.getStatus() == null || order.getStatus() == filter.getStatus())
+				.allMatch(order -> filter.getUserId() == null || order.getUserId().equals(filter.getUserId()))
+				.allMatch(order -> filter.getTo() == null || order.getOrderDate().isBefore(filter.getTo()));
+		assertThat(StatementRecorder.getStatements()).hasSize(1);
+		String plan = explain(StatementRecorder.getStatements().get(0));
+		assertThat(plan).containsAnyOf(expectedIndexes.toArray(String[]::new))
+				.doesNotContain("Sort")
+				.doesNotContain("Seq Scan");
+		assertThat(elapsedMillis).isLessThan(MAX_PAGE_MILLIS);
+	}
+
+	/**
+	 * Explains the plan the statement gets whatever its parameter values, as a prepared statement would.
+	 */
+	private String explain(String sql) {
+		StringBuilder numbered = new StringBuilder();
+		int parameters = 0;
+		for (char c : sql.toCharArray()) {
+			if (c == '?') {
+				numbered.append('$').append(++parameters);
+			} else {
+				numbered.append(c);
+			}
+		}
+		jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+		jdbcTemplate.execute("PREPARE filter_query AS " + numbered);
+		try {
+			String nulls = String.join(", ", Collections.nCopies(parameters, "NULL"));
+			return String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE filter_query(" + nulls + ")",
+					String.class));
+		} finally {
+			jdbcTemplate.execute("DEALLOCATE filter_query");
+		}
+	}
+}
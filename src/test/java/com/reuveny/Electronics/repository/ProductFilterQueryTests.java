@@ -0,0 +1,138 @@
+package com.reuveny.Electronics.repository;
+
+import com.reuveny.Electronics.dto.CursorPageDto;
+import com.reuveny.Electronics.dto.ProductFilterDto;
+import com.reuveny.Electronics.dto.ProductSort;
+import com.reuveny.Electronics.dto.ProductSummaryDto;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.service.ProductService;
+import com.reuveny.Electronics.support.StatementRecorder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs against the PostgreSQL database configured by the DB_* environment variables.
+ * The products are seeded and analyzed once for all the filters, and deleted after the last one.
+ */
+@SpringBootTest(properties = StatementRecorder.PROPERTY)
+@Transactional
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class ProductFilterQueryTests {
+
+	private static final int PRODUCT_COUNT = 50_000;
+
+	private static final String IMG_URL_PREFIX = "https://img.example.com/filter-query/";
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeAll
+	void seedProducts() {
+		Category[] categories = Category.values();
+		List<Product> batch = new ArrayList<>();
+		for (int i = 0; i < PRODUCT_COUNT; i++) {
+			Product product = new Product();
+			product.setName("Product " + Integer.toString(i * 7919 % PRODUCT_COUNT, 36));
+			product.setPrice((double) (i * 31 % 2000));
+			product.setImgUrl(IMG_URL_PREFIX + i);
+			product.setStockQuantity(i % 5);
+			product.setCategory(categories[i % categories.length]);
+			batch.add(product);
+			if (batch.size() == 1000) {
+				productRepository.insertAll(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		jdbcTemplate.execute("ANALYZE products");
+	}
+
+	@AfterAll
+	void deleteProducts() {
+		jdbcTemplate.update("DELETE FROM products WHERE img_url LIKE ?", IMG_URL_PREFIX + "%");
+	}
+
+	static Stream<Arguments> filters() {
+		return Stream.of(
+				Arguments.of(new ProductFilterDto(null, null, null, null, ProductSort.NEWEST),
+						List.of("products_pkey")),
+				Arguments.of(new ProductFilterDto(null, null, null, null, ProductSort.PRICE_ASC),
+						List.of("idx_products_price_id")),
+				Arguments.of(new ProductFilterDto(null, null, null, true, ProductSort.NAME),
+						List.of("idx_products_name_id")),
+				// A category holding a large share of the catalog may as well be read off the primary key.
+				Arguments.of(new ProductFilterDto(Category.TABLET, null, null, null, ProductSort.NEWEST),
+						List.of("idx_products_category_id", "products_pkey")),
+				Arguments.of(new ProductFilterDto(Category.TABLET, 100.0, 900.0, null, ProductSort.PRICE_DESC),
+						List.of("idx_products_category_price_id")),
+				Arguments.of(new ProductFilterDto(Category.LAPTOP, null, null, true, ProductSort.NAME),
+						List.of("idx_products_category_name_id"))
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("filters")
+	void fetchesEachPageWithOneIndexOrderedQuery(ProductFilterDto filter, List<String> expectedIndexes) {
+		CursorPageDto<ProductSummaryDto> firstPage = productService.filterProducts(filter, null, 20);
+		assertThat(firstPage.isHasMore()).isTrue();
+
+		StatementRecorder.clear();
+		CursorPageDto<ProductSummaryDto> secondPage =
+				productService.filterProducts(filter, firstPage.getNextCursor(), 20);
+
+		assertThat(secondPage.getItems()).hasSize(20)
+				.doesNotContainAnyElementsOf(firstPage.getItems());
+		assertThat(StatementRecorder.getStatements()).hasSize(1);
+		String plan = explain(StatementRecorder.getStatements().get(0));
+		assertThat(plan).containsAnyOf(expectedIndexes.toArray(String[]::new))
+				.doesNotContain("Sort")
+				.doesNotContain("Seq Scan");
+	}
+
+	/**
+	 * Explains the plan the statement gets whatever its parameter values, as a prepared statement would.
+	 */
+	private String explain(String sql) {
+		StringBuilder numbered = new StringBuilder();
+		int parameters = 0;
+		for (char c : sql.toCharArray()) {
+			if (c == '?') {
+				numbered.append('$').append(++parameters);
+			} else {
+				numbered.append(c);
+			}
+		}
+		jdbcTemplate.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+		jdbcTemplate.execute("PREPARE filter_query AS " + numbered);
+		try {
+			String nulls = String.join(", ", Collections.nCopies(parameters, "NULL"));
+			return String.join("\n", jdbcTemplate.queryForList("EXPLAIN EXECUTE filter_query(" + nulls + ")",
+					String.class));
+		} finally {
+			jdbcTemplate.execute("DEALLOCATE filter_query");
+		}
+	}
+}
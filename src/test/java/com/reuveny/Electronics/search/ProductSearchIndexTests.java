@@ -0,0 +1,137 @@
+package com.reuveny.Electronics.search;
+
+import com.reuveny.Electronics.dto.ProductNameDto;
+import com.reuveny.Electronics.event.ProductChange;
+import com.reuveny.Electronics.event.ProductChangedEvent;
+import com.reuveny.Electronics.event.ProductSnapshot;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTests {
+
+	private static final long LARGE_CATALOG_SIZE = 200_000;
+
+	private ProductRepository productRepository;
+
+	private ProductSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		index = new ProductSearchIndex(productRepository, 20000);
+		index.index(1L, "Samsung Galaxy S24 Ultra");
+		index.index(2L, "Samsung Galaxy Tab S9");
+		index.index(3L, "Apple iPhone 15 Pro");
+		index.index(4L, "Galaxy Buds Case for Samsung");
+	}
+
+	@Test
+	void matchesWordPrefixesAndRanksExactMatchesFirst() {
+		assertThat(index.search("sams gal", 10)).containsExactly(1L, 2L, 4L);
+		assertThat(index.search("iphone", 10)).containsExactly(3L);
+		assertThat(index.search("galaxy tab", 10)).containsExactly(2L);
+	}
+
+	@Test
+	void toleratesASingleTypo() {
+		assertThat(index.search("samsng", 10)).containsExactlyInAnyOrder(1L, 2L, 4L);
+		assertThat(index.search("ihpone", 10)).containsExactly(3L);
+		assertThat(index.search("xyzzy", 10)).isEmpty();
+	}
+
+	@Test
+	void honorsTheLimit() {
+		assertThat(index.search("samsung", 2)).hasSize(2);
+	}
+
+	@Test
+	void keepsEveryTermOfABroadPrefixAndRanksTheExactOneFirst() {
+		for (long i = 0; i < 100; i++) {
+			index.index(100L + i, "Cable c" + i);
+		}
+		index.index(300L, "C");
+
+		List<Long> productIds = index.search("c", 200);
+
+		assertThat(productIds).hasSize(102)
+				.startsWith(300L)
+				.contains(4L, 199L);
+	}
+
+	@Test
+	void boundsTheTermsLookedAtOnALargeCatalog() {
+		ProductSearchIndex largeIndex = new ProductSearchIndex(mock(ProductRepository.class), 1000);
+		for (long i = 0; i < LARGE_CATALOG_SIZE; i++) {
+			largeIndex.index(i, "Cable c" + i + " " + spell(i));
+		}
+		largeIndex.index(LARGE_CATALOG_SIZE, "Samsung Galaxy S24 Ultra");
+
+		List<Set<Long>> prefixMatches = largeIndex.matchingPostings("c", false);
+		Set<String> typoCandidates = largeIndex.fuzzyCandidates("samsnug");
+
+		assertThat(prefixMatches).hasSize(1000);
+		// Every term shares the first letter, and every four-letter start is taken, so this is a worst case.
+		assertThat(typoCandidates).contains("samsung")
+				.hasSizeLessThan((int) (LARGE_CATALOG_SIZE / 50));
+		assertThat(largeIndex.search("samsnug", 10)).containsExactly(LARGE_CATALOG_SIZE);
+		assertThat(largeIndex.search("c", 10)).hasSize(10);
+	}
+
+	@Test
+	void followsCommittedProductChanges() {
+		ProductSnapshot before = new ProductSnapshot("Apple iPhone 15 Pro", Category.SMART_PHONE, 999.0, 5);
+		ProductSnapshot after = new ProductSnapshot("Apple iPhone 16 Pro", Category.SMART_PHONE, 999.0, 5);
+		index.onProductChanged(new ProductChangedEvent(List.of(
+				new ProductChange(3L, before, after),
+				new ProductChange(2L, before, null))));
+
+		assertThat(index.search("16", 10)).containsExactly(3L);
+		assertThat(index.search("15", 10)).isEmpty();
+		assertThat(index.search("tab", 10)).isEmpty();
+	}
+
+	@Test
+	void rebuildPicksUpChangesMadeElsewhere() {
+		when(productRepository.findNamesAfter(eq(0L), any())).thenReturn(List.of(
+				new ProductNameDto(1L, "Samsung Galaxy S24 Ultra"),
+				new ProductNameDto(2L, "Samsung Galaxy Tab S9"),
+				new ProductNameDto(3L, "Apple iPhone 15 Pro"),
+				new ProductNameDto(4L, "Galaxy Buds Case for Samsung")), List.of(
+				new ProductNameDto(1L, "Samsung Galaxy S24 Ultra"),
+				new ProductNameDto(3L, "Apple iPhone 16 Pro"),
+				new ProductNameDto(5L, "Apple Watch Ultra")));
+		index.build();
+		assertThat(index.search("iphone 15", 10)).containsExactly(3L);
+
+		index.rebuild();
+
+		assertThat(index.search("iphone 16", 10)).containsExactly(3L);
+		assertThat(index.search("iphone 15", 10)).isEmpty();
+		assertThat(index.search("tab", 10)).isEmpty();
+		assertThat(index.search("buds", 10)).isEmpty();
+		assertThat(index.search("ultra", 10)).containsExactlyInAnyOrder(1L, 5L);
+	}
+
+	/**
+	 * A distinct letters-only term for every number, all starting with the same letter as "samsung".
+	 */
+	private static String spell(long number) {
+		StringBuilder term = new StringBuilder("s");
+		do {
+			term.append((char) ('a' + number % 26));
+			number /= 26;
+		} while (number > 0);
+		return term.toString();
+	}
+}
@@ -0,0 +1,144 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.controller.ShoppingCartController;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.CheckoutRequest;
+import com.reuveny.Electronics.model.CheckoutStatus;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.CheckoutQueueService;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The asynchronous checkout mode, run against the PostgreSQL database configured by the DB_* environment
+ * variables: checkouts are queued, then placed by the workers, and their status reports the outcome.
+ */
+@SpringBootTest(properties = {"checkout.mode=async", "checkout.async.poll-interval=50ms"})
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class AsyncCheckoutTests {
+
+	private static final int USERS = 20;
+
+	private static final long TIMEOUT_MILLIS = 30_000;
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private ShoppingCartController shoppingCartController;
+
+	@Autowired
+	private CheckoutQueueService checkoutQueueService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Product product;
+
+	private List<User> users;
+
+	@BeforeEach
+	void setUp() {
+		product = new Product();
+		product.setName("Async product " + UUID.randomUUID());
+		product.setPrice(49.5);
+		product.setImgUrl("https://img.example.com/async");
+		product.setStockQuantity(USERS);
+		product.setCategory(Category.TV);
+		product = productRepository.save(product);
+
+		users = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			users.add(TestUsers.newUser("async"));
+		}
+		users = userRepository.saveAll(users);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM items WHERE product_id = ?", product.getId());
+		for (User user : users) {
+			jdbcTemplate.update("DELETE FROM checkout_requests WHERE user_id = ?", user.getId());
+			jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+			jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+			jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+			jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		}
+		jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+		jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+	}
+
+	@Test
+	void queuedCheckoutsArePlacedByTheWorkers() throws Exception {
+		List<Long> checkoutIds = new ArrayList<>();
+		for (User user : users) {
+			shoppingCartService.addProductToCart(user.getId(), product.getId(), 1);
+			ResponseEntity<?> response = shoppingCartController.checkout(user.getId(), null);
+			assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+			checkoutIds.add(((CheckoutRequest) response.getBody()).getId());
+		}
+
+		for (Long checkoutId : checkoutIds) {
+			CheckoutRequest checkoutRequest = awaitOutcome(checkoutId);
+			assertThat(checkoutRequest.getStatus()).isEqualTo(CheckoutStatus.COMPLETED);
+			assertThat(checkoutRequest.getOrderId()).isNotNull();
+		}
+		assertThat(jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM items WHERE product_id = ? AND order_id IS NOT NULL",
+				Integer.class, product.getId())).isEqualTo(USERS);
+	}
+
+	@Test
+	void checkoutsWhoseCartWasEmptiedMeanwhileFail() throws Exception {
+		User user = users.get(0);
+		shoppingCartService.addProductToCart(user.getId(), product.getId(), 1);
+		String idempotencyKey = UUID.randomUUID().toString();
+		CheckoutRequest first = checkoutQueueService.enqueueCheckout(user.getId(), idempotencyKey);
+		CheckoutRequest second = checkoutQueueService.enqueueCheckout(user.getId(), null);
+		CheckoutRequest replayed = checkoutQueueService.enqueueCheckout(user.getId(), idempotencyKey);
+
+		assertThat(replayed.getId()).isEqualTo(first.getId());
+		// Both checkouts may be claimed in the same batch and run in parallel, so either one can win.
+		List<CheckoutRequest> outcomes = List.of(awaitOutcome(first.getId()), awaitOutcome(second.getId()));
+		assertThat(outcomes).extracting(CheckoutRequest::getStatus)
+				.containsExactlyInAnyOrder(CheckoutStatus.COMPLETED, CheckoutStatus.FAILED);
+		assertThat(outcomes).filteredOn(checkoutRequest -> checkoutRequest.getStatus() == CheckoutStatus.FAILED)
+				.singleElement()
+				.satisfies(failed -> assertThat(failed.getFailureReason()).contains("empty"));
+	}
+
+	private CheckoutRequest awaitOutcome(Long checkoutId) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		CheckoutRequest checkoutRequest = checkoutQueueService.getCheckoutRequest(checkoutId);
+		while ((checkoutRequest.getStatus() == CheckoutStatus.PENDING ||
+				checkoutRequest.getStatus() == CheckoutStatus.PROCESSING) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+			checkoutRequest = checkoutQueueService.getCheckoutRequest(checkoutId);
+		}
+		return checkoutRequest;
+	}
+}
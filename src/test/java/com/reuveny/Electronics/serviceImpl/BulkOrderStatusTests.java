@@ -0,0 +1,178 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.dto.OrderFilterDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionDto;
+import com.reuveny.Electronics.dto.OrderStatusTransitionResultDto;
+import com.reuveny.Electronics.dto.ProductSalesDto;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.Status;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.OrderRepository;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.OrderService;
+import com.reuveny.Electronics.service.SalesAnalyticsService;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against the PostgreSQL database configured by the DB_* environment variables.
+ * The seeded orders are rolled back after each test.
+ */
+@SpringBootTest(properties = "order.bulk-status.batch-size=7")
+@Transactional
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class BulkOrderStatusTests {
+
+	// No other order is placed this early, so the range only holds the seeded ones.
+	private static final LocalDateTime FIRST_ORDER_DATE = LocalDateTime.of(2002, 1, 1, 0, 0);
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.saveAndFlush(TestUsers.newUser("bulk"));
+	}
+
+	@Test
+	void movesTheGivenOrdersWhoseStatusAllowsItInChunks() {
+		List<Long> pending = seedOrders(Status.PENDING, 10, 0);
+		List<Long> shipped = seedOrders(Status.SHIPPED, 5, 10);
+		List<Long> packaging = seedOrders(Status.PACKAGING, 5, 15);
+		List<Long> orderIds = new ArrayList<>(pending);
+		orderIds.addAll(shipped);
+		orderIds.addAll(packaging);
+		orderIds.add(pending.get(0));
+		orderIds.add(-1L);
+
+		OrderStatusTransitionResultDto result = orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(orderIds, null, Status.PACKAGING));
+
+		assertThat(result.getUpdatedCount()).isEqualTo(10);
+		assertThat(result.getRejectedCount()).isEqualTo(11);
+		assertThat(result.getRejectedOrderIds()).containsAll(shipped)
+				.containsAll(packaging)
+				.contains(-1L)
+				.doesNotContainAnyElementsOf(pending);
+		assertThat(getStatuses(pending)).containsOnly(Status.PACKAGING);
+		assertThat(getStatuses(shipped)).containsOnly(Status.SHIPPED);
+	}
+
+	@Test
+	void movesTheOrdersMatchingTheFilterFromItsStatus() {
+		List<Long> inRange = seedOrders(Status.PENDING, 30, 0);
+		List<Long> outOfRange = seedOrders(Status.PENDING, 5, 30);
+		List<Long> delivered = seedOrders(Status.DELIVERED, 5, 35);
+		OrderFilterDto filter = new OrderFilterDto(Status.PENDING, FIRST_ORDER_DATE, FIRST_ORDER_DATE.plusHours(30),
+				user.getId());
+
+		assertThatThrownBy(() -> orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(null, filter, Status.SHIPPED)))
+				.isInstanceOf(IllegalArgumentException.class);
+		OrderStatusTransitionResultDto result = orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(null, filter, Status.PACKAGING));
+
+		assertThat(result.getUpdatedCount()).isEqualTo(30);
+		assertThat(result.getRejectedCount()).isZero();
+		assertThat(getStatuses(inRange)).containsOnly(Status.PACKAGING);
+		assertThat(getStatuses(outOfRange)).containsOnly(Status.PENDING);
+		assertThat(getStatuses(delivered)).containsOnly(Status.DELIVERED);
+	}
+
+	@Test
+	void cancellingOrdersTakesThemOutOfTheSales() {
+		Product product = new Product();
+		product.setName("Bulk product " + UUID.randomUUID());
+		product.setPrice(20.0);
+		product.setImgUrl("https://img.example.com/bulk");
+		product.setStockQuantity(100);
+		product.setCategory(Category.SMART_PHONE);
+		product = productRepository.saveAndFlush(product);
+		List<Long> orderIds = seedOrders(Status.PENDING, 2, 0);
+		orderIds.addAll(seedOrders(Status.SHIPPED, 1, 2));
+		for (int i = 0; i < orderIds.size(); i++) {
+			jdbcTemplate.update("INSERT INTO items (quantity, unit_price_cents, category, order_id, product_id) " +
+					"VALUES (?, 2000, 'SMART_PHONE', ?, ?)", i + 1, orderIds.get(i), product.getId());
+			orderRepository.addToSalesRollups(orderIds.get(i));
+		}
+
+		OrderStatusTransitionResultDto result = orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(orderIds, null, Status.CANCELED));
+
+		assertThat(result.getUpdatedCount()).isEqualTo(2);
+		assertThat(result.getRejectedOrderIds()).containsExactly(orderIds.get(2));
+		Long productId = product.getId();
+		assertThat(salesAnalyticsService.getTopSellingProducts(100))
+				.filteredOn(productSales -> productSales.getProductId().equals(productId))
+				.extracting(ProductSalesDto::getUnits)
+				.containsExactly(3L);
+	}
+
+	@Test
+	void rejectsInvalidTransitions() {
+		List<Long> orderIds = seedOrders(Status.PACKAGING, 1, 0);
+		OrderFilterDto filter = new OrderFilterDto(Status.PACKAGING, null, null, user.getId());
+
+		assertThatThrownBy(() -> orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(orderIds, null, Status.PENDING)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(orderIds, filter, Status.SHIPPED)))
+				.isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> orderService.transitionOrderStatuses(
+				new OrderStatusTransitionDto(orderIds, null, null)))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	/**
+	 * Inserts orders an hour apart, the first one the given number of hours after the first order date.
+	 */
+	private List<Long> seedOrders(Status status, int count, int firstHour) {
+		return jdbcTemplate.queryForList("INSERT INTO orders (order_date, total_amount, status, user_id) " +
+						"SELECT ?::timestamp + i * INTERVAL '1 hour', 10, ?, ? FROM generate_series(?, ?) i " +
+						"RETURNING id",
+				Long.class, FIRST_ORDER_DATE, status.name(), user.getId(), firstHour, firstHour + count - 1);
+	}
+
+	private List<Status> getStatuses(List<Long> orderIds) {
+		return jdbcTemplate.queryForList("SELECT status FROM orders WHERE id = ANY (?)", String.class,
+						(Object) orderIds.toArray(Long[]::new))
+				.stream()
+				.map(Status::valueOf)
+				.toList();
+	}
+}
@@ -0,0 +1,134 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import com.reuveny.Electronics.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrent changes to one shopping cart, run against the PostgreSQL database configured by the DB_*
+ * environment variables. Conflicting cart versions have to be retried rather than overwrite each other's total,
+ * and carts saved before totals were kept in cents have to be priced once rather than on every read.
+ */
+@SpringBootTest(properties = "retry.conflict.max-attempts=20")
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class ConcurrentCartUpdateTests {
+
+	private static final int THREADS = 8;
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private List<Product> products;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		products = new ArrayList<>();
+		for (int i = 0; i < THREADS; i++) {
+			Product product = new Product();
+			product.setName("Concurrent product " + i + " " + UUID.randomUUID());
+			product.setPrice(9.99 + i);
+			product.setImgUrl("https://img.example.com/concurrent");
+			product.setStockQuantity(10);
+			product.setCategory(Category.TABLET);
+			products.add(product);
+		}
+		products = productRepository.saveAll(products);
+
+		user = userRepository.save(TestUsers.newUser("concurrent"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM items WHERE shopping_cart_id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		for (Product product : products) {
+			jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+			jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+		}
+	}
+
+	@Test
+	void concurrentAddsToOneCartKeepEveryLineInTheTotal() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> adds = new ArrayList<>();
+		for (Product product : products) {
+			adds.add(executor.submit(() -> {
+				start.await();
+				return shoppingCartService.addProductToCart(user.getId(), product.getId(), 2);
+			}));
+		}
+		start.countDown();
+		for (Future<?> add : adds) {
+			add.get();
+		}
+		executor.shutdown();
+
+		long expectedTotalCents = products.stream()
+				.mapToLong(product -> 2 * Money.toCents(product.getPrice()))
+				.sum();
+		assertThat(jdbcTemplate.queryForObject("SELECT total_amount_cents FROM shopping_carts WHERE id = ?",
+				Long.class, user.getShoppingCart().getId())).isEqualTo(expectedTotalCents);
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE shopping_cart_id = ?",
+				Integer.class, user.getShoppingCart().getId())).isEqualTo(THREADS);
+	}
+
+	@Test
+	void legacyCartsArePricedOnceAndNotWhenRead() {
+		Long cartId = user.getShoppingCart().getId();
+		for (Product product : products) {
+			jdbcTemplate.update("INSERT INTO items (quantity, product_id, shopping_cart_id) VALUES (3, ?, ?)",
+					product.getId(), cartId);
+		}
+		jdbcTemplate.update("UPDATE shopping_carts SET total_amount_cents = NULL WHERE id = ?", cartId);
+
+		shoppingCartService.getCartByUserId(user.getId());
+		assertThat(jdbcTemplate.queryForObject("SELECT total_amount_cents FROM shopping_carts WHERE id = ?",
+				Long.class, cartId)).isNull();
+
+		shoppingCartService.priceLegacyCarts();
+
+		long expectedTotalCents = products.stream()
+				.mapToLong(product -> 3 * Money.toCents(product.getPrice()))
+				.sum();
+		assertThat(jdbcTemplate.queryForObject("SELECT total_amount_cents FROM shopping_carts WHERE id = ?",
+				Long.class, cartId)).isEqualTo(expectedTotalCents);
+		assertThat(jdbcTemplate.queryForList("SELECT unit_price_cents FROM items WHERE shopping_cart_id = ?",
+				Long.class, cartId)).doesNotContainNull();
+	}
+}
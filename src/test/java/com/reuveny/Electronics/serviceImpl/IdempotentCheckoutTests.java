@@ -0,0 +1,145 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reuveny.Electronics.controller.ShoppingCartController;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.Status;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retried checkouts with an idempotency key, run against the PostgreSQL database configured by the DB_*
+ * environment variables. However the retries interleave, they have to place a single order.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class IdempotentCheckoutTests {
+
+	private static final int RETRIES = 8;
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private ShoppingCartController shoppingCartController;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Product product;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		product = new Product();
+		product.setName("Idempotent product " + UUID.randomUUID());
+		product.setPrice(99.9);
+		product.setImgUrl("https://img.example.com/idempotent");
+		product.setStockQuantity(10);
+		product.setCategory(Category.SMART_PHONE);
+		product = productRepository.save(product);
+
+		user = userRepository.save(TestUsers.newUser("idempotent"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM checkout_idempotency_keys WHERE user_id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM items WHERE product_id = ?", product.getId());
+		jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+		jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+	}
+
+	@Test
+	void concurrentRetriesPlaceOneOrder() throws Exception {
+		shoppingCartService.addProductToCart(user.getId(), product.getId(), 2);
+		String idempotencyKey = UUID.randomUUID().toString();
+		ExecutorService executor = Executors.newFixedThreadPool(RETRIES);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<Order>> checkouts = new ArrayList<>();
+		for (int i = 0; i < RETRIES; i++) {
+			checkouts.add(executor.submit(() -> {
+				start.await();
+				return shoppingCartService.checkout(user.getId(), idempotencyKey);
+			}));
+		}
+		start.countDown();
+		List<Long> orderIds = new ArrayList<>();
+		for (Future<Order> checkout : checkouts) {
+			Order order = checkout.get();
+			orderIds.add(order.getId());
+			assertThat(order.getItems()).hasSize(1);
+		}
+		executor.shutdown();
+
+		assertThat(orderIds).containsOnly(orderIds.get(0));
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?",
+				Integer.class, user.getId())).isOne();
+	}
+
+	@Test
+	void replaysAreAnsweredWithTheStoredOrder() throws IOException {
+		shoppingCartService.addProductToCart(user.getId(), product.getId(), 1);
+		String idempotencyKey = UUID.randomUUID().toString();
+
+		Order placed = (Order) shoppingCartController.checkout(user.getId(), idempotencyKey).getBody();
+		placed.setStatus(Status.CANCELED);
+		ResponseEntity<?> replay = shoppingCartController.checkout(user.getId(), idempotencyKey);
+		JsonNode replayed = objectMapper.readTree((byte[]) replay.getBody());
+		Order replayedWithoutCache = shoppingCartService.checkout(user.getId(), idempotencyKey);
+		shoppingCartService.addProductToCart(user.getId(), product.getId(), 1);
+		Order next = (Order) shoppingCartController.checkout(user.getId(), UUID.randomUUID().toString()).getBody();
+
+		// The replay is a snapshot of the order as it was placed, which later changes to the instance don't reach.
+		assertThat(replay.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+		assertThat(replayed.get("id").asLong()).isEqualTo(placed.getId());
+		assertThat(replayed.get("status").asText()).isEqualTo(Status.PENDING.name());
+		assertThat(replayed.get("items")).hasSize(1);
+		assertThat(replayed.get("items").get(0).get("product").get("id").asLong()).isEqualTo(product.getId());
+		assertThat(replayedWithoutCache.getId()).isEqualTo(placed.getId());
+		assertThat(replayedWithoutCache.getItems()).hasSize(1);
+		assertThat(next.getId()).isNotEqualTo(placed.getId());
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM orders WHERE user_id = ?",
+				Integer.class, user.getId())).isEqualTo(2);
+	}
+}
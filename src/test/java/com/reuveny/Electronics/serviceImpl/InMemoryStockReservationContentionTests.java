@@ -0,0 +1,22 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * The add-to-cart contention benchmark with the stock reserved from the in-memory inventory. Its throughput is
+ * logged next to the database inventory's, labelled with the inventory mode.
+ */
+@SpringBootTest(properties = "inventory.mode=memory")
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class InMemoryStockReservationContentionTests extends StockReservationContentionTests {
+
+	@Autowired
+	private InMemoryInventoryServiceImpl inventoryService;
+
+	@Override
+	protected void writePendingStock() {
+		inventoryService.flush();
+	}
+}
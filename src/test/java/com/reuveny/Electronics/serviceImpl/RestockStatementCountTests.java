@@ -0,0 +1,225 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.OrderService;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement counts of clearing a cart and cancelling an order, run against the PostgreSQL database
+ * configured by the DB_* environment variables. Both have to restock every product with set-based
+ * statements, so a large cart or order costs as many statements as a single line one.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class RestockStatementCountTests {
+
+	private static final int SMALL = 1;
+
+	private static final int LARGE = 25;
+
+	private static final int STOCK = 10;
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private StatementCountingDataSource dataSource;
+
+	private List<Product> products;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		products = new ArrayList<>();
+		for (int i = 0; i < LARGE; i++) {
+			Product product = new Product();
+			product.setName("Restock product " + i + " " + UUID.randomUUID());
+			product.setPrice(10.0 + i);
+			product.setImgUrl("https://img.example.com/restock");
+			product.setStockQuantity(STOCK);
+			product.setCategory(Category.LAPTOP);
+			products.add(product);
+		}
+		products = productRepository.saveAll(products);
+
+		user = userRepository.save(TestUsers.newUser("restock"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM items WHERE shopping_cart_id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM items WHERE order_id IN (SELECT id FROM orders WHERE user_id = ?)",
+				user.getId());
+		jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		for (Product product : products) {
+			jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+			jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+		}
+	}
+
+	@Test
+	void clearCartTakesAsManyStatementsForAnyCartSize() {
+		int smallCartStatements = countStatements(() -> {
+			fillCart(SMALL);
+			return () -> shoppingCartService.clearCart(user.getId());
+		});
+		int largeCartStatements = countStatements(() -> {
+			fillCart(LARGE);
+			return () -> shoppingCartService.clearCart(user.getId());
+		});
+
+		assertThat(largeCartStatements).isEqualTo(smallCartStatements);
+		assertAllStockRestored();
+	}
+
+	@Test
+	void cancelOrderTakesAsManyStatementsForAnyOrderSize() {
+		int smallOrderStatements = countStatements(() -> {
+			fillCart(SMALL);
+			Order order = shoppingCartService.checkout(user.getId());
+			return () -> orderService.cancelOrder(order.getId());
+		});
+		int largeOrderStatements = countStatements(() -> {
+			fillCart(LARGE);
+			Order order = shoppingCartService.checkout(user.getId());
+			return () -> orderService.cancelOrder(order.getId());
+		});
+
+		assertThat(largeOrderStatements).isEqualTo(smallOrderStatements);
+		assertAllStockRestored();
+	}
+
+	private void fillCart(int lines) {
+		for (int i = 0; i < lines; i++) {
+			shoppingCartService.addProductToCart(user.getId(), products.get(i).getId(), 1 + i % 3);
+		}
+	}
+
+	/**
+	 * Prepares the state to measure, then counts the statements the returned operation executes.
+	 */
+	private int countStatements(Supplier<Runnable> preparation) {
+		Runnable operation = preparation.get();
+		dataSource.startCounting();
+		try {
+			operation.run();
+		} finally {
+			dataSource.stopCounting();
+		}
+		return dataSource.getStatements();
+	}
+
+	private void assertAllStockRestored() {
+		for (Product product : products) {
+			assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?",
+					Integer.class, product.getId())).isEqualTo(STOCK);
+		}
+		assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items WHERE shopping_cart_id = ?",
+				Integer.class, user.getShoppingCart().getId())).isZero();
+	}
+
+	@TestConfiguration
+	static class StatementCountingConfiguration {
+
+		@Bean
+		static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+			return new BeanPostProcessor() {
+				@Override
+				public Object postProcessAfterInitialization(Object bean, String beanName) {
+					return bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource) ?
+							new StatementCountingDataSource(dataSource) : bean;
+				}
+			};
+		}
+	}
+
+	/**
+	 * Counts the statements prepared on its connections by the thread that started counting,
+	 * so that scheduled background work doesn't add to the count.
+	 */
+	static class StatementCountingDataSource extends DelegatingDataSource {
+
+		private volatile Thread countedThread;
+
+		private int statements;
+
+		StatementCountingDataSource(DataSource targetDataSource) {
+			super(targetDataSource);
+		}
+
+		void startCounting() {
+			statements = 0;
+			countedThread = Thread.currentThread();
+		}
+
+		void stopCounting() {
+			countedThread = null;
+		}
+
+		int getStatements() {
+			return statements;
+		}
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = super.getConnection();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+					(proxy, method, arguments) -> {
+						if (Thread.currentThread() == countedThread && (method.getName().startsWith("prepare") ||
+								method.getName().equals("createStatement"))) {
+							statements++;
+						}
+						try {
+							return method.invoke(connection, arguments);
+						} catch (InvocationTargetException ex) {
+							throw ex.getCause();
+						}
+					});
+		}
+	}
+}
@@ -0,0 +1,264 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.dto.CategorySalesDto;
+import com.reuveny.Electronics.dto.DailySalesDto;
+import com.reuveny.Electronics.dto.ProductSalesDto;
+import com.reuveny.Electronics.exception.ResourceNotFoundException;
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Order;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.Status;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.OrderRepository;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.OrderService;
+import com.reuveny.Electronics.service.SalesAnalyticsService;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs against the PostgreSQL database configured by the DB_* environment variables.
+ * The rollups are compared before and after each change, since other orders may have been placed today.
+ */
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class SalesRollupTests {
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private SalesAnalyticsService salesAnalyticsService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Product laptop;
+
+	private Product tv;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		laptop = saveProduct(Category.LAPTOP, 100.10);
+		tv = saveProduct(Category.TV, 250.0);
+
+		user = userRepository.save(TestUsers.newUser("sales"));
+	}
+
+	@AfterEach
+	void tearDown() {
+		// Take the orders left out of the rollups before deleting them, for the other tests' sake.
+		for (Long orderId : jdbcTemplate.queryForList(
+				"SELECT id FROM orders WHERE user_id = ? AND status <> 'CANCELED'", Long.class, user.getId())) {
+			orderRepository.subtractFromSalesRollups(orderId);
+		}
+		jdbcTemplate.update("DELETE FROM items WHERE shopping_cart_id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM items WHERE order_id IN (SELECT id FROM orders WHERE user_id = ?)",
+				user.getId());
+		jdbcTemplate.update("DELETE FROM orders WHERE user_id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+		jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+		jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		for (Product product : List.of(laptop, tv)) {
+			jdbcTemplate.update("DELETE FROM product_sales WHERE product_id = ?", product.getId());
+			jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+			jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+		}
+	}
+
+	@Test
+	void checkoutsCancellationsAndStatusChangesKeepTheRollupsUpToDate() {
+		DailySalesDto todayBefore = getTodaySales();
+		CategorySalesDto laptopsBefore = getCategorySales(Category.LAPTOP);
+
+		shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 2);
+		shoppingCartService.addProductToCart(user.getId(), tv.getId(), 1);
+		Order first = shoppingCartService.checkout(user.getId());
+		shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 1);
+		Order second = shoppingCartService.checkout(user.getId());
+
+		assertProductSales(laptop, 3, 300.30);
+		assertProductSales(tv, 1, 250.0);
+		assertTodaySales(todayBefore, 2, 4, 550.30);
+		assertCategorySales(laptopsBefore, Category.LAPTOP, 3, 300.30);
+
+		orderService.updateOrderStatus(second.getId(), Status.CANCELED);
+		assertProductSales(laptop, 2, 200.20);
+		assertTodaySales(todayBefore, 1, 3, 450.20);
+
+		orderService.updateOrderStatus(second.getId(), Status.SHIPPED);
+		orderService.updateOrderStatus(second.getId(), Status.DELIVERED);
+		assertProductSales(laptop, 3, 300.30);
+		assertTodaySales(todayBefore, 2, 4, 550.30);
+
+		orderService.cancelOrder(first.getId());
+		assertProductSales(laptop, 1, 100.10);
+		assertThat(salesAnalyticsService.getTopSellingProducts(100)).extracting(ProductSalesDto::getProductId)
+				.doesNotContain(tv.getId());
+		assertTodaySales(todayBefore, 1, 1, 100.10);
+		assertCategorySales(laptopsBefore, Category.LAPTOP, 1, 100.10);
+	}
+
+	@Test
+	void rebuildingTheRollupsGivesTheSameSales() {
+		salesAnalyticsService.rebuildSalesRollups();
+		shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 2);
+		shoppingCartService.addProductToCart(user.getId(), tv.getId(), 2);
+		Order first = shoppingCartService.checkout(user.getId());
+		shoppingCartService.addProductToCart(user.getId(), tv.getId(), 1);
+		shoppingCartService.checkout(user.getId());
+		orderService.updateOrderStatus(first.getId(), Status.CANCELED);
+		shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 3);
+		shoppingCartService.checkout(user.getId());
+
+		List<DailySalesDto> dailySales = salesAnalyticsService.getDailySales(LocalDate.now().minusDays(365),
+				LocalDate.now());
+		List<CategorySalesDto> categorySales = salesAnalyticsService.getCategorySales();
+		List<ProductSalesDto> productSales = salesAnalyticsService.getTopSellingProducts(100);
+		salesAnalyticsService.rebuildSalesRollups();
+
+		assertThat(salesAnalyticsService.getDailySales(LocalDate.now().minusDays(365), LocalDate.now()))
+				.isEqualTo(dailySales);
+		assertThat(salesAnalyticsService.getCategorySales()).isEqualTo(categorySales);
+		assertThat(salesAnalyticsService.getTopSellingProducts(100)).isEqualTo(productSales);
+		assertProductSales(laptop, 3, 300.30);
+		assertProductSales(tv, 1, 250.0);
+	}
+
+	@Test
+	void cancellingAnOrderTakesItOutOfTheCategoryItWasPlacedIn() {
+		CategorySalesDto laptopsBefore = getCategorySales(Category.LAPTOP);
+		CategorySalesDto tvsBefore = getCategorySales(Category.TV);
+		shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 2);
+		Order order = shoppingCartService.checkout(user.getId());
+		assertCategorySales(laptopsBefore, Category.LAPTOP, 2, 200.20);
+
+		jdbcTemplate.update("UPDATE products SET category = 'TV', price = 999 WHERE id = ?", laptop.getId());
+		orderService.updateOrderStatus(order.getId(), Status.CANCELED);
+
+		assertCategorySales(laptopsBefore, Category.LAPTOP, 0, 0.0);
+		assertCategorySales(tvsBefore, Category.TV, 0, 0.0);
+	}
+
+	@Test
+	void concurrentCancellationsTakeAnOrderOutOfTheSalesOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (int round = 0; round < 10; round++) {
+				shoppingCartService.addProductToCart(user.getId(), laptop.getId(), 2);
+				Long orderId = shoppingCartService.checkout(user.getId()).getId();
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<?>> cancellations = new ArrayList<>();
+				for (Runnable cancellation : List.<Runnable>of(
+						() -> orderService.cancelOrder(orderId),
+						() -> orderService.cancelOrder(orderId),
+						() -> orderService.updateOrderStatus(orderId, Status.CANCELED))) {
+					cancellations.add(executor.submit(() -> {
+						start.await();
+						try {
+							cancellation.run();
+						} catch (ResourceNotFoundException ex) {
+							// Another cancellation deleted the order first.
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> cancellation : cancellations) {
+					cancellation.get();
+				}
+
+				assertThat(jdbcTemplate.queryForObject(
+						"SELECT COALESCE(SUM(units), 0) FROM product_sales WHERE product_id = ?", Long.class,
+						laptop.getId())).isZero();
+				assertThat(jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE id = ?",
+						Integer.class, laptop.getId())).isEqualTo(100);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private Product saveProduct(Category category, double price) {
+		Product product = new Product();
+		product.setName("Sales product " + UUID.randomUUID());
+		product.setPrice(price);
+		product.setImgUrl("https://img.example.com/sales");
+		product.setStockQuantity(100);
+		product.setCategory(category);
+		return productRepository.save(product);
+	}
+
+	private DailySalesDto getTodaySales() {
+		return salesAnalyticsService.getDailySales(LocalDate.now(), LocalDate.now())
+				.stream()
+				.findFirst()
+				.orElse(new DailySalesDto(LocalDate.now(), 0L, 0L, 0.0));
+	}
+
+	private CategorySalesDto getCategorySales(Category category) {
+		return salesAnalyticsService.getCategorySales()
+				.stream()
+				.filter(categorySales -> categorySales.getCategory() == category)
+				.findFirst()
+				.orElse(new CategorySalesDto(category, 0L, 0.0));
+	}
+
+	private void assertProductSales(Product product, long units, double revenue) {
+		assertThat(salesAnalyticsService.getTopSellingProducts(100))
+				.filteredOn(productSales -> productSales.getProductId().equals(product.getId()))
+				.singleElement()
+				.satisfies(productSales -> {
+					assertThat(productSales.getProductName()).isEqualTo(product.getName());
+					assertThat(productSales.getUnits()).isEqualTo(units);
+					assertThat(productSales.getRevenue()).isCloseTo(revenue, within(0.001));
+				});
+	}
+
+	private void assertTodaySales(DailySalesDto before, long orders, long units, double revenue) {
+		DailySalesDto today = getTodaySales();
+		assertThat(today.getOrderCount() - before.getOrderCount()).isEqualTo(orders);
+		assertThat(today.getUnits() - before.getUnits()).isEqualTo(units);
+		assertThat(today.getRevenue() - before.getRevenue()).isCloseTo(revenue, within(0.001));
+	}
+
+	private void assertCategorySales(CategorySalesDto before, Category category, long units, double revenue) {
+		CategorySalesDto after = getCategorySales(category);
+		assertThat(after.getUnits() - before.getUnits()).isEqualTo(units);
+		assertThat(after.getRevenue() - before.getRevenue()).isCloseTo(revenue, within(0.001));
+	}
+}
@@ -0,0 +1,228 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Item;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.ShoppingCart;
+import com.reuveny.Electronics.repository.CheckoutIdempotencyKeyRepository;
+import com.reuveny.Electronics.repository.ItemRepository;
+import com.reuveny.Electronics.repository.OrderRepository;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.ShoppingCartRepository;
+import com.reuveny.Electronics.service.InventoryService;
+import com.reuveny.Electronics.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cart total maintenance on a large cart, with a benchmark of the service's incremental update in cents
+ * against the full recompute it replaced, on carts of growing line counts.
+ */
+@Slf4j
+class ShoppingCartTotalsTests {
+
+	private static final long USER_ID = 1L;
+
+	private static final int CART_SIZE = 1_000;
+
+	private static final int[] BENCHMARK_CART_SIZES = {10, 100, 1_000, 10_000};
+
+	private static final int MUTATIONS = 2_000;
+
+	private static final int ROUNDS = 5;
+
+	private final Map<Long, CountingProduct> products = new HashMap<>();
+
+	private final Map<Long, Item> itemsByProductId = new HashMap<>();
+
+	private ShoppingCart shoppingCart;
+
+	private ShoppingCartServiceImpl shoppingCartService;
+
+	@BeforeEach
+	void setUp() {
+		createCart(CART_SIZE);
+
+		ShoppingCartRepository shoppingCartRepository = mock(ShoppingCartRepository.class);
+		ProductRepository productRepository = mock(ProductRepository.class);
+		ItemRepository itemRepository = mock(ItemRepository.class);
+		InventoryService inventoryService = mock(InventoryService.class);
+		when(shoppingCartRepository.findCartByUserId(USER_ID)).thenReturn(shoppingCart);
+		when(shoppingCartRepository.save(any())).then(returnsFirstArg());
+		when(itemRepository.findByShoppingCartIdAndProductId(any(), anyLong())).then(invocation ->
+				findLine(invocation.getArgument(1)));
+		when(productRepository.findById(anyLong())).then(invocation ->
+				Optional.ofNullable(products.get(invocation.<Long>getArgument(0))));
+		when(inventoryService.reserveStock(anyLong(), anyInt())).thenReturn(true);
+		shoppingCartService = new ShoppingCartServiceImpl(shoppingCartRepository, itemRepository, productRepository,
+				mock(OrderRepository.class), inventoryService, mock(CheckoutIdempotencyKeyRepository.class));
+	}
+
+	@Test
+	void readsOnlyThePriceOfTheChangedLine() {
+		long totalBefore = shoppingCart.getTotalAmountCents();
+
+		shoppingCartService.addProductToCart(USER_ID, 500L, 3);
+		shoppingCartService.addProductToCart(USER_ID, CART_SIZE + 1L, 2);
+
+		int priceReads = products.values().stream().mapToInt(product -> product.priceReads).sum();
+		assertThat(priceReads).isEqualTo(2);
+		assertThat(shoppingCart.getTotalAmountCents())
+				.isEqualTo(totalBefore + 2 * Money.toCents(products.get(500L).getPrice()) +
+						2 * Money.toCents(products.get(CART_SIZE + 1L).getPrice()));
+	}
+
+	@Test
+	void keepsTotalsExact() {
+		shoppingCart.getItems().clear();
+		itemsByProductId.clear();
+		shoppingCart.setTotalAmountCents(0L);
+		for (long id = 1; id <= 3; id++) {
+			products.get(id).setPrice(0.1);
+			shoppingCartService.addProductToCart(USER_ID, id, 1);
+		}
+
+		assertThat(0.1 + 0.1 + 0.1).isNotEqualTo(0.3);
+		assertThat(shoppingCart.getTotalAmountCents()).isEqualTo(30L);
+		assertThat(shoppingCart.getTotalAmount()).isEqualTo(0.3);
+	}
+
+	@Test
+	void benchmarkIncrementalTotalAgainstFullRecompute() {
+		for (int cartSize : BENCHMARK_CART_SIZES) {
+			createCart(cartSize);
+			Product addedProduct = products.get(cartSize + 1L);
+			long incrementalNanos = Long.MAX_VALUE;
+			long recomputeNanos = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				incrementalNanos = Math.min(incrementalNanos, time(() -> addAndRemoveIncrementally(addedProduct)));
+				recomputeNanos = Math.min(recomputeNanos, time(() -> addAndRemoveRecomputing(addedProduct)));
+			}
+
+			log.info("Cart of {} lines, per add and remove: incremental {} ns, full recompute {} ns",
+					cartSize, incrementalNanos / MUTATIONS, recomputeNanos / MUTATIONS);
+			assertThat(shoppingCart.getItems()).hasSize(cartSize);
+		}
+	}
+
+	/**
+	 * The current approach: the service takes only the changed line's amount out of and puts it back into
+	 * the total. Includes the calls to the mocked repositories, which cost the same whatever the cart size.
+	 */
+	private void addAndRemoveIncrementally(Product addedProduct) {
+		long totalBefore = shoppingCart.getTotalAmountCents();
+		for (int i = 0; i < MUTATIONS; i++) {
+			shoppingCartService.addProductToCart(USER_ID, addedProduct.getId(), 1 + i % 3);
+			shoppingCartService.removeProductFromCart(USER_ID, addedProduct.getId());
+		}
+		assertThat(shoppingCart.getTotalAmountCents()).isEqualTo(totalBefore);
+	}
+
+	/**
+	 * The previous approach: every mutation sums every line again, reading every product price.
+	 */
+	private void addAndRemoveRecomputing(Product addedProduct) {
+		double totalAmount = 0.0;
+		for (int i = 0; i < MUTATIONS; i++) {
+			Item item = new Item();
+			item.setProduct(addedProduct);
+			item.setShoppingCart(shoppingCart);
+			item.setQuantity(1 + i % 3);
+			shoppingCart.getItems().add(item);
+			totalAmount = recomputeTotal();
+			shoppingCart.getItems().remove(item);
+			totalAmount = Math.min(totalAmount, recomputeTotal());
+		}
+		assertThat(totalAmount).isPositive();
+	}
+
+	private double recomputeTotal() {
+		double totalAmount = 0.0;
+		for (Item item : shoppingCart.getItems()) {
+			totalAmount += item.getProduct().getPrice() * item.getQuantity();
+		}
+		return totalAmount;
+	}
+
+	private static long time(Runnable mutations) {
+		long startedAt = System.nanoTime();
+		mutations.run();
+		return System.nanoTime() - startedAt;
+	}
+
+	/**
+	 * Replaces the cart with one of the given number of lines, and adds a product that is not in it yet.
+	 */
+	private void createCart(int cartSize) {
+		products.clear();
+		itemsByProductId.clear();
+		shoppingCart = new ShoppingCart();
+		shoppingCart.setItems(new ArrayList<>());
+		for (long id = 1; id <= cartSize + 1; id++) {
+			CountingProduct product = new CountingProduct(id, 0.1 * (id % 10) + 19.99);
+			products.put(id, product);
+			if (id <= cartSize) {
+				Item item = new Item();
+				item.setId(id);
+				item.setProduct(product);
+				item.setShoppingCart(shoppingCart);
+				item.setQuantity(1);
+				item.setUnitPriceCents(Money.toCents(product.getPrice()));
+				shoppingCart.getItems().add(item);
+				shoppingCart.setTotalAmountCents(shoppingCart.getTotalAmountCents() + item.getUnitPriceCents());
+				itemsByProductId.put(id, item);
+			}
+		}
+		products.values().forEach(product -> product.priceReads = 0);
+	}
+
+	/**
+	 * Looks the line of a product up the way the indexed query would, without scanning the cart, so that only
+	 * the service's own work is measured: seeded lines are indexed, and a line the service added is the last one.
+	 */
+	private Optional<Item> findLine(Long productId) {
+		Item item = itemsByProductId.get(productId);
+		if (item == null && !shoppingCart.getItems().isEmpty()) {
+			Item lastItem = shoppingCart.getItems().get(shoppingCart.getItems().size() - 1);
+			if (lastItem.getProduct().getId().equals(productId)) {
+				item = lastItem;
+			}
+		}
+		return Optional.ofNullable(item);
+	}
+
+	/**
+	 * A product that counts how often its price is read, as each read of a lazily loaded product loads it.
+	 */
+	private static class CountingProduct extends Product {
+		private int priceReads;
+
+		CountingProduct(Long id, double price) {
+			setId(id);
+			setName("Product " + id);
+			setCategory(Category.TV);
+			setStockQuantity(100);
+			setPrice(price);
+		}
+
+		@Override
+		public Double getPrice() {
+			priceReads++;
+			return super.getPrice();
+		}
+	}
+}
@@ -0,0 +1,139 @@
+package com.reuveny.Electronics.serviceImpl;
+
+import com.reuveny.Electronics.model.Category;
+import com.reuveny.Electronics.model.Product;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.repository.ProductRepository;
+import com.reuveny.Electronics.repository.UserRepository;
+import com.reuveny.Electronics.service.ShoppingCartService;
+import com.reuveny.Electronics.support.TestUsers;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Contention benchmark for add-to-cart on a single hot product, run against the PostgreSQL database
+ * configured by the DB_* environment variables. Every user tries to reserve one unit concurrently, and the
+ * throughput is logged rather than asserted.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfEnvironmentVariable(named = "DB_HOST", matches = ".+")
+class StockReservationContentionTests {
+
+	private static final int THREADS = 32;
+
+	private static final int USERS = 2_000;
+
+	private static final int STOCK = 500;
+
+	@Autowired
+	private ShoppingCartService shoppingCartService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Value("${inventory.mode}")
+	private String inventoryMode;
+
+	private Product product;
+
+	private List<User> users;
+
+	@BeforeEach
+	void setUp() {
+		product = new Product();
+		product.setName("Hot product " + UUID.randomUUID());
+		product.setPrice(10.0);
+		product.setImgUrl("https://img.example.com/hot");
+		product.setStockQuantity(STOCK);
+		product.setCategory(Category.SMART_PHONE);
+		product = productRepository.save(product);
+
+		users = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			users.add(TestUsers.newUser("contention"));
+		}
+		users = userRepository.saveAll(users);
+	}
+
+	@AfterEach
+	void tearDown() {
+		jdbcTemplate.update("DELETE FROM items WHERE product_id = ?", product.getId());
+		jdbcTemplate.update("DELETE FROM stock_journal WHERE product_id = ?", product.getId());
+		for (User user : users) {
+			jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+			jdbcTemplate.update("DELETE FROM shopping_carts WHERE id = ?", user.getShoppingCart().getId());
+			jdbcTemplate.update("DELETE FROM wish_lists WHERE id = ?", user.getWishList().getId());
+		}
+		jdbcTemplate.update("DELETE FROM products WHERE id = ?", product.getId());
+	}
+
+	/**
+	 * Writes the stock reserved so far to the products, for inventories that don't do so right away.
+	 */
+	protected void writePendingStock() {
+	}
+
+	@Test
+	void neverOversellsUnderContention() throws Exception {
+		AtomicInteger reserved = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		long startedAt = System.nanoTime();
+		List<Future<?>> attempts = new ArrayList<>();
+		for (User user : users) {
+			attempts.add(executor.submit(() -> {
+				try {
+					shoppingCartService.addProductToCart(user.getId(), product.getId(), 1);
+					reserved.incrementAndGet();
+				} catch (IllegalArgumentException ex) {
+					rejected.incrementAndGet();
+				}
+			}));
+		}
+		for (Future<?> attempt : attempts) {
+			attempt.get();
+		}
+		long elapsedNanos = System.nanoTime() - startedAt;
+		executor.shutdown();
+		writePendingStock();
+
+		log.info("{} add-to-cart calls on one product with {} threads and the {} inventory: {} calls/s",
+				USERS, THREADS, inventoryMode, Math.round(USERS * 1e9 / elapsedNanos));
+
+		Integer stockLeft = jdbcTemplate.queryForObject(
+				"SELECT stock_quantity FROM products WHERE id = ?", Integer.class, product.getId());
+		Integer quantityInCarts = jdbcTemplate.queryForObject(
+				"SELECT COALESCE(SUM(quantity), 0) FROM items WHERE product_id = ? AND shopping_cart_id IS NOT NULL",
+				Integer.class, product.getId());
+		assertThat(reserved.get()).isEqualTo(STOCK);
+		assertThat(rejected.get()).isEqualTo(USERS - STOCK);
+		assertThat(stockLeft).isZero();
+		assertThat(quantityInCarts).isEqualTo(STOCK);
+		assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+	}
+}
@@ -0,0 +1,38 @@
+package com.reuveny.Electronics.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records every SQL statement Hibernate prepares, for tests to count statements or explain their plans.
+ * Register it with the {@link #PROPERTY} test property.
+ */
+public class StatementRecorder implements StatementInspector {
+
+	public static final String PROPERTY = "spring.jpa.properties.hibernate.session_factory.statement_inspector=" +
+			"com.reuveny.Electronics.support.StatementRecorder";
+
+	private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Forgets the statements recorded so far.
+	 */
+	public static void clear() {
+		STATEMENTS.clear();
+	}
+
+	/**
+	 * @return The statements recorded since the last clear, oldest first.
+	 */
+	public static List<String> getStatements() {
+		return List.copyOf(STATEMENTS);
+	}
+
+	@Override
+	public String inspect(String sql) {
+		STATEMENTS.add(sql);
+		return sql;
+	}
+}
@@ -0,0 +1,34 @@
+package com.reuveny.Electronics.support;
+
+import com.reuveny.Electronics.model.ShoppingCart;
+import com.reuveny.Electronics.model.User;
+import com.reuveny.Electronics.model.WishList;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * Builds the users the database tests place their carts and orders with.
+ */
+public final class TestUsers {
+
+	private TestUsers() {
+	}
+
+	/**
+	 * @param emailPrefix Tells the users of a test apart from the others.
+	 * @return A new unsaved user with a unique email, an empty shopping cart and an empty wish list.
+	 */
+	public static User newUser(String emailPrefix) {
+		User user = new User();
+		user.setEmail(emailPrefix + "-" + UUID.randomUUID() + "@example.com");
+		user.setPassword("password");
+		user.setAddress("Address");
+		user.setPhone("0500000000");
+		ShoppingCart shoppingCart = new ShoppingCart();
+		shoppingCart.setItems(new ArrayList<>());
+		user.setShoppingCart(shoppingCart);
+		user.setWishList(new WishList());
+		return user;
+	}
+}